@@ -0,0 +1,131 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.examples.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal harness for the micro-benchmarks of this package: runs warm-up rounds, then 
+ * measured rounds, and prints the best and the median time per operation. It's not 
+ * a replacement for JMH, but enough to compare alternatives within the same JVM run.
+ */
+final class Bench {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    
+    // Consumes results to prevent dead code elimination
+    static volatile Object sink;
+    
+    private Bench() {}
+    
+    interface Round {
+        void run(long operations) throws Exception;
+    }
+    
+    static void run(String name, long operations, Round round) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run(operations);
+        }
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            round.run(operations);
+            times[i] = System.nanoTime() - start;
+        }
+        report(name, operations, times);
+    }
+    
+    static void runConcurrently(String name, int threads, long operationsPerThread, Round round) throws Exception {
+        runConcurrently(name, Thread::new, threads, operationsPerThread, round);
+    }
+    
+    static void runConcurrently(String name, ThreadFactory threadFactory, int threads, long operationsPerThread, 
+                                Round round) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            concurrentRound(threadFactory, threads, operationsPerThread, round);
+        }
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            times[i] = concurrentRound(threadFactory, threads, operationsPerThread, round);
+        }
+        report(name + " [" + threads + " threads]", threads * operationsPerThread, times);
+    }
+    
+    /**
+     * @return factory of virtual threads or null when they are not supported (prior to Java 21)
+     */
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory)Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+    
+    private static long concurrentRound(ThreadFactory threadFactory, int threads, long operationsPerThread, 
+                                        Round round) throws Exception {
+        long[] start = new long[1];
+        // Time is taken by the last arriving thread before all threads are released
+        CyclicBarrier barrier = new CyclicBarrier(threads, () -> start[0] = System.nanoTime());
+        Throwable[] errors = new Throwable[threads];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int idx = i;
+            workers[i] = threadFactory.newThread(() -> {
+                try {
+                    barrier.await();
+                    round.run(operationsPerThread);
+                } catch (Throwable ex) {
+                    errors[idx] = ex;
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long time = System.nanoTime() - start[0];
+        for (Throwable error : errors) {
+            if (null != error) {
+                throw new IllegalStateException(error);
+            }
+        }
+        return time;
+    }
+    
+    private static void report(String name, long operations, long[] times) {
+        Arrays.sort(times);
+        double best   = (double)times[0] / operations;
+        double median = (double)times[times.length / 2] / operations;
+        System.out.println(String.format(
+            "%-60s %10.1f ns/op (best) %10.1f ns/op (median) %14.0f ops/s", 
+            name, best, median, TimeUnit.SECONDS.toNanos(1) / median
+        ));
+    }
+}
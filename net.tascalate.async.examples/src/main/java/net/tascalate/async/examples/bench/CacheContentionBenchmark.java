@@ -0,0 +1,155 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.examples.bench;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import net.tascalate.async.util.ClassCache;
+import net.tascalate.async.util.WeakIdentityCache;
+
+/**
+ * Cache hits under contention of 64 threads: {@link ClassCache} and {@link WeakIdentityCache} 
+ * versus the weak-key cache they replaced ({@link LegacyCache}, that allocates lookup key, polls 
+ * reference queue and may take mutex on every call). The runtime module doesn't export
+ * the utility package, so the benchmark must be started from the class path.
+ */
+public class CacheContentionBenchmark {
+    private static final int THREADS = 64;
+    private static final long OPERATIONS_PER_THREAD = 200_000;
+    
+    public static void main(String[] args) throws Exception {
+        Class<?>[] classes = {
+            String.class, Integer.class, Long.class, Double.class, 
+            Object.class, Thread.class, Runnable.class, Class.class
+        };
+        ClassLoader[] classLoaders = new ClassLoader[4];
+        for (int i = 0; i < classLoaders.length; i++) {
+            classLoaders[i] = new URLClassLoader(new URL[0], CacheContentionBenchmark.class.getClassLoader());
+        }
+        
+        ClassCache<String> classCache = new ClassCache<>();
+        LegacyCache<Class<?>, String> legacyClassCache = new LegacyCache<>();
+        Bench.runConcurrently("ClassCache hit", THREADS, OPERATIONS_PER_THREAD, n -> {
+            Object result = null;
+            for (long i = 0; i < n; i++) {
+                result = classCache.get(classes[(int)i & 7], Class::getName);
+            }
+            Bench.sink = result;
+        });
+        Bench.runConcurrently("Legacy cache hit, Class keys", THREADS, OPERATIONS_PER_THREAD, n -> {
+            Object result = null;
+            for (long i = 0; i < n; i++) {
+                result = legacyClassCache.get(classes[(int)i & 7], Class::getName);
+            }
+            Bench.sink = result;
+        });
+        
+        WeakIdentityCache<ClassLoader, String> classLoaderCache = new WeakIdentityCache<>();
+        LegacyCache<ClassLoader, String> legacyClassLoaderCache = new LegacyCache<>();
+        Bench.runConcurrently("WeakIdentityCache hit", THREADS, OPERATIONS_PER_THREAD, n -> {
+            Object result = null;
+            for (long i = 0; i < n; i++) {
+                result = classLoaderCache.get(classLoaders[(int)i & 3], String::valueOf);
+            }
+            Bench.sink = result;
+        });
+        Bench.runConcurrently("Legacy cache hit, ClassLoader keys", THREADS, OPERATIONS_PER_THREAD, n -> {
+            Object result = null;
+            for (long i = 0; i < n; i++) {
+                result = legacyClassLoaderCache.get(classLoaders[(int)i & 3], String::valueOf);
+            }
+            Bench.sink = result;
+        });
+    }
+    
+    // The weak-key cache that was used before ClassCache and WeakIdentityCache
+    static final class LegacyCache<K, V> {
+        private final ConcurrentMap<Reference<K>, Object> producerMutexes = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Reference<K>, V> valueMap = new ConcurrentHashMap<>();
+        private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+
+        V get(K key, Function<? super K, ? extends V> producer) {
+            expungeStaleEntries();
+            Reference<K> lookupKeyRef = new KeyReference<K>(key, null);
+            V value = valueMap.get(lookupKeyRef);
+            if (value != null) {
+                return value;
+            }
+            Object mutex = producerMutexes.computeIfAbsent(lookupKeyRef, k -> new Object());
+            synchronized (mutex) {
+                try {
+                    value = valueMap.get(lookupKeyRef);
+                    if (value == null) {
+                        value = producer.apply(key);
+                        valueMap.put(new KeyReference<K>(key, queue), value);
+                    }
+                } finally {
+                    producerMutexes.remove(lookupKeyRef, mutex);
+                }
+            }
+            return value;
+        }
+
+        private void expungeStaleEntries() {
+            for (Reference<? extends K> ref; (ref = queue.poll()) != null;) {
+                valueMap.remove(ref);
+            }
+        }
+        
+        static final class KeyReference<K> extends WeakReference<K> {
+            private final int referentHashCode;
+
+            KeyReference(K key, ReferenceQueue<K> queue) {
+                super(key, queue);
+                referentHashCode = key == null ? 0 : key.hashCode();
+            }
+
+            @Override
+            public int hashCode() {
+                return referentHashCode;
+            }
+
+            @Override
+            public boolean equals(Object other) {
+                if (this == other) {
+                    return true;
+                }
+                if (!(other instanceof KeyReference)) {
+                    return false;
+                }
+                Object r1 = this.get();
+                Object r2 = ((KeyReference<?>) other).get();
+                return null == r1 ? null == r2 : r1.equals(r2);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.examples.bench;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import net.tascalate.async.ContextVar;
+
+/**
+ * Cost of relaying 1, 5 and 20 thread-local {@link ContextVar}-s to the resumed code: capturing
+ * on suspend and applying/restoring on resume, both when the resuming thread already has the
+ * same values and when it has other ones. Compared with the list-based implementation 
+ * it replaced ({@link LegacyContextualRunnable}).
+ */
+public class ContextRelayBenchmark {
+    private static final long OPERATIONS = 1_000_000;
+    
+    public static void main(String[] args) throws Exception {
+        for (int count : new int[] {1, 5, 20}) {
+            run(count);
+        }
+    }
+    
+    private static void run(int count) throws Exception {
+        List<ThreadLocal<Object>> threadLocals = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            threadLocals.add(new ThreadLocal<>());
+        }
+        List<ContextVar<Object>> contextVars = threadLocals.stream()
+                                                           .map(ContextVar::from)
+                                                           .collect(Collectors.toList());
+        Function<Runnable, Runnable> relay = ContextVar.relay1(contextVars);
+        Function<Runnable, Runnable> legacyRelay = r -> new LegacyContextualRunnable(r, contextVars).captureCurrentContext();
+        Runnable task = () -> Bench.sink = threadLocals;
+        
+        // Context of the suspended code
+        setAll(threadLocals, "captured");
+        Runnable sameContext = relay.apply(task);
+        Runnable legacySameContext = legacyRelay.apply(task);
+        // Context of the resuming thread
+        setAll(threadLocals, "other");
+        Runnable otherContext = relay.apply(task);
+        Runnable legacyOtherContext = legacyRelay.apply(task);
+        setAll(threadLocals, "captured");
+        
+        String suffix = ", " + count + " vars";
+        Bench.run("Capture" + suffix, OPERATIONS, n -> {
+            Runnable result = null;
+            for (long i = 0; i < n; i++) {
+                result = relay.apply(task);
+            }
+            Bench.sink = result;
+        });
+        Bench.run("Legacy: capture" + suffix, OPERATIONS, n -> {
+            Runnable result = null;
+            for (long i = 0; i < n; i++) {
+                result = legacyRelay.apply(task);
+            }
+            Bench.sink = result;
+        });
+        Bench.run("Resume in same context" + suffix, OPERATIONS, n -> {
+            for (long i = 0; i < n; i++) {
+                sameContext.run();
+            }
+        });
+        Bench.run("Legacy: resume in same context" + suffix, OPERATIONS, n -> {
+            for (long i = 0; i < n; i++) {
+                legacySameContext.run();
+            }
+        });
+        Bench.run("Resume in other context" + suffix, OPERATIONS, n -> {
+            for (long i = 0; i < n; i++) {
+                otherContext.run();
+            }
+        });
+        Bench.run("Legacy: resume in other context" + suffix, OPERATIONS, n -> {
+            for (long i = 0; i < n; i++) {
+                legacyOtherContext.run();
+            }
+        });
+        setAll(threadLocals, null);
+    }
+    
+    private static void setAll(List<ThreadLocal<Object>> threadLocals, Object value) {
+        for (ThreadLocal<Object> threadLocal : threadLocals) {
+            if (null == value) {
+                threadLocal.remove();
+            } else {
+                threadLocal.set(value);
+            }
+        }
+    }
+    
+    // Copy of the ContextualRunnable before the captured context was kept in arrays
+    static final class LegacyContextualRunnable implements Runnable {
+        private final Runnable delegate;
+        private final List<? extends ContextVar<?>> contextVars;
+        
+        private List<Object> capturedContext;
+        
+        LegacyContextualRunnable(Runnable delegate, List<? extends ContextVar<?>> contextVars) {
+            this.delegate = delegate;
+            this.contextVars = contextVars;
+        }
+        
+        LegacyContextualRunnable captureCurrentContext() {
+            capturedContext = captureContextVars();
+            return this;
+        }
+        
+        @Override
+        public void run() {
+            List<Object> originalContext = captureContextVars(); 
+            restoreContextVars(capturedContext);
+            try {
+                delegate.run();
+            } finally {
+                restoreContextVars(originalContext);
+            }
+        }
+        
+        private List<Object> captureContextVars() {
+            return contextVars.stream().map(v -> v.get()).collect(Collectors.toList());
+        }
+        
+        private void restoreContextVars(List<Object> contextState) {
+            Iterator<? extends ContextVar<?>> vars = contextVars.iterator();
+            Iterator<Object> values = contextState.iterator();
+            while (vars.hasNext() && values.hasNext()) {
+                @SuppressWarnings("unchecked")
+                ContextVar<Object> contextVar = (ContextVar<Object>)vars.next();
+                Object contextVal = values.next();
+                if (null == contextVal) {
+                    contextVar.remove();
+                } else {
+                    contextVar.set(contextVal);
+                }
+            }
+        }
+    }
+}
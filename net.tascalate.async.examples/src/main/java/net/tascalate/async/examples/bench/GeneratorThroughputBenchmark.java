@@ -0,0 +1,146 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.examples.bench;
+
+import static net.tascalate.async.CallContext.async;
+import static net.tascalate.async.CallContext.yield;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.tascalate.async.AsyncGenerator;
+import net.tascalate.async.Scheduler;
+import net.tascalate.async.SchedulerProvider;
+import net.tascalate.async.async;
+import net.tascalate.javaflow.SuspendableIterator;
+
+/**
+ * Throughput of the {@link AsyncGenerator} in elements per second: every element is handed off 
+ * from the producer to the consumer and back via the handoff cells of the generator. Producer 
+ * and consumer run either on the same thread or on separate threads. Afterwards the stress run 
+ * starts many generators from several threads, their consumers close them at random points.
+ * Like other examples, the class must be instrumented by the build.
+ */
+public class GeneratorThroughputBenchmark {
+    private static final long ELEMENTS = 1_000_000;
+    
+    private static final int STRESS_THREADS = 8;
+    private static final int STRESS_GENERATORS_PER_THREAD = 500;
+    private static final int STRESS_MAX_ELEMENTS = 2_000;
+    
+    public static void main(String[] args) throws Exception {
+        Scheduler sameThread = Scheduler.sameThreadContextless();
+        Bench.run("Generator, same thread", ELEMENTS, n -> {
+            Bench.sink = sum(numbers(n, sameThread), n, sameThread).toCompletableFuture().get();
+        });
+        
+        ExecutorService producerExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService consumerExecutor = Executors.newSingleThreadExecutor();
+        try {
+            Scheduler producerScheduler = Scheduler.nonInterruptible(producerExecutor);
+            Scheduler consumerScheduler = Scheduler.nonInterruptible(consumerExecutor);
+            Bench.run("Generator, producer and consumer threads", ELEMENTS, n -> {
+                Bench.sink = sum(numbers(n, producerScheduler), n, consumerScheduler).toCompletableFuture().get();
+            });
+        } finally {
+            producerExecutor.shutdown();
+            consumerExecutor.shutdown();
+        }
+        
+        stress();
+    }
+    
+    // Produce, consume and close generators from many threads concurrently
+    private static void stress() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(STRESS_THREADS);
+        try {
+            Scheduler scheduler = Scheduler.interruptible(executor);
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            for (int i = 0; i < STRESS_THREADS; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int j = 0; j < STRESS_GENERATORS_PER_THREAD; j++) {
+                            long count = ThreadLocalRandom.current().nextInt(STRESS_MAX_ELEMENTS);
+                            // Consumer closes the generator before it's done in most cases
+                            long limit = ThreadLocalRandom.current().nextLong(count + 1);
+                            long actual = sum(numbers(count, scheduler), limit, scheduler)
+                                .toCompletableFuture()
+                                .get(10, TimeUnit.SECONDS);
+                            long expected = limit * (limit - 1) / 2;
+                            if (actual != expected) {
+                                throw new IllegalStateException(
+                                    "Sum of " + limit + " elements is " + actual + " instead of " + expected
+                                );
+                            }
+                        }
+                    } catch (Throwable ex) {
+                        synchronized (errors) {
+                            errors.add(ex);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (!errors.isEmpty()) {
+                throw new IllegalStateException("Stress run failed", errors.get(0));
+            }
+            System.out.println(String.format(
+                "Stress run passed: %d generators on %d threads", 
+                STRESS_THREADS * STRESS_GENERATORS_PER_THREAD, STRESS_THREADS
+            ));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @async
+    static AsyncGenerator<Long> numbers(long count, @SchedulerProvider Scheduler scheduler) {
+        for (long i = 0; i < count; i++) {
+            yield(Long.valueOf(i));
+        }
+        return yield();
+    }
+    
+    @async
+    static CompletionStage<Long> sum(AsyncGenerator<Long> generator, long limit, @SchedulerProvider Scheduler scheduler) {
+        long result = 0;
+        try (SuspendableIterator<Long> values = generator.valuesIterator()) {
+            for (long i = 0; i < limit && values.hasNext(); i++) {
+                result += values.next();
+            }
+        }
+        return async(result);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.examples.bench;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.stream.StreamSupport;
+
+import net.tascalate.async.Scheduler;
+import net.tascalate.async.core.AsyncMethodExecutor;
+import net.tascalate.async.spi.SchedulerResolver;
+
+/**
+ * Per-invocation cost of the scheduler resolution that precedes every call of the 
+ * {@link net.tascalate.async.async} method without explicit scheduler: the resolver 
+ * chain cached per class loader versus sorting of the {@link ServiceLoader} stream 
+ * on every call (as it was done before the chain was cached). Resolvers of the scoped 
+ * and provided modules are on the class path of examples.
+ */
+public class SchedulerResolutionBenchmark {
+    private static final Comparator<SchedulerResolver> BY_PRIORITY = 
+        Comparator.comparing(SchedulerResolver::priority).reversed();
+
+    public static void main(String[] args) throws Exception {
+        Object owner = new SchedulerResolutionBenchmark();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        ServiceLoader<SchedulerResolver> serviceLoader = ServiceLoader.load(
+            SchedulerResolver.class, SchedulerResolutionBenchmark.class.getClassLoader()
+        );
+        long resolvers = StreamSupport.stream(serviceLoader.spliterator(), false).count();
+        System.out.println("Scheduler resolvers available: " + resolvers);
+        
+        long operations = 1_000_000;
+        Bench.run("Cached resolver chain", operations, n -> {
+            Scheduler result = null;
+            for (long i = 0; i < n; i++) {
+                result = AsyncMethodExecutor.currentScheduler(null, owner, lookup);
+            }
+            Bench.sink = result;
+        });
+        Bench.run("ServiceLoader stream sorted per call", operations, n -> {
+            Scheduler result = null;
+            for (long i = 0; i < n; i++) {
+                result = StreamSupport.stream(serviceLoader.spliterator(), false)
+                                      .sorted(BY_PRIORITY)
+                                      .map(r -> r.resolve(owner, lookup))
+                                      .filter(Objects::nonNull)
+                                      .findFirst()
+                                      .orElse(Scheduler.sameThreadContextless());
+            }
+            Bench.sink = result;
+        });
+    }
+}
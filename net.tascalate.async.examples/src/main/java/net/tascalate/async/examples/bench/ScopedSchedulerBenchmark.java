@@ -0,0 +1,157 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.examples.bench;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+
+import net.tascalate.async.Scheduler;
+import net.tascalate.async.core.AsyncMethodExecutor;
+import net.tascalate.async.resolver.scoped.SchedulerScope;
+
+/**
+ * Cost of {@link SchedulerScope} bindings and lookups on platform and virtual threads: the 
+ * single carrier of all scopes (backed by {@code ScopedValue} on Java 25+) versus one 
+ * thread-local per scope as it was before ({@link LegacyScopes}). Virtual threads are measured 
+ * only when the JVM supports them (Java 21+).
+ */
+public class ScopedSchedulerBenchmark {
+    private static final int VIRTUAL_THREADS = 10_000;
+    private static final long OPERATIONS = 200_000;
+    
+    private static final Scheduler SCHEDULER = Scheduler.sameThreadContextless();
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("Java version: " + System.getProperty("java.version"));
+        int platformThreads = Runtime.getRuntime().availableProcessors();
+        runAll("platform", Thread::new, platformThreads, OPERATIONS);
+        
+        ThreadFactory virtualThreadFactory = Bench.virtualThreadFactory();
+        if (null == virtualThreadFactory) {
+            System.out.println("Virtual threads are not supported, skipped");
+        } else {
+            // Same total number of operations spread over many short-living threads
+            runAll("virtual", virtualThreadFactory, VIRTUAL_THREADS, OPERATIONS * platformThreads / VIRTUAL_THREADS);
+        }
+    }
+    
+    private static void runAll(String kind, ThreadFactory threadFactory, int threads, long operations) throws Exception {
+        Object owner = new ScopedSchedulerBenchmark();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        LegacyScopes legacy = new LegacyScopes();
+        
+        Bench.runConcurrently("Resolve all scopes, " + kind, threadFactory, threads, operations, n -> {
+            Scheduler result = null;
+            for (long i = 0; i < n; i++) {
+                result = resolve();
+            }
+            Bench.sink = result;
+        });
+        Bench.runConcurrently("Legacy: resolve all scopes, " + kind, threadFactory, threads, operations, n -> {
+            Scheduler result = null;
+            for (long i = 0; i < n; i++) {
+                result = legacy.resolve();
+            }
+            Bench.sink = result;
+        });
+        
+        Bench.runConcurrently("Bind scope and resolve, " + kind, threadFactory, threads, operations, n -> {
+            Scheduler result = null;
+            for (long i = 0; i < n; i++) {
+                result = SchedulerScope.DEFAULTS.callWith(SCHEDULER, ScopedSchedulerBenchmark::resolve);
+            }
+            Bench.sink = result;
+        });
+        Bench.runConcurrently("Legacy: bind scope and resolve, " + kind, threadFactory, threads, operations, n -> {
+            Scheduler result = null;
+            for (long i = 0; i < n; i++) {
+                result = legacy.callWith(SchedulerScope.DEFAULTS, SCHEDULER, legacy::resolve);
+            }
+            Bench.sink = result;
+        });
+        
+        Bench.runConcurrently("Full resolution within scope, " + kind, threadFactory, threads, operations, n -> {
+            Bench.sink = SchedulerScope.DEFAULTS.callWith(SCHEDULER, () -> {
+                Scheduler result = null;
+                for (long i = 0; i < n; i++) {
+                    result = AsyncMethodExecutor.currentScheduler(null, owner, lookup);
+                }
+                return result;
+            });
+        });
+    }
+    
+    // Same order as the resolvers of the scoped module
+    private static Scheduler resolve() {
+        Scheduler result = SchedulerScope.PROVIDER_OVERRIDE.current();
+        if (null == result) {
+            result = SchedulerScope.DEFAULTS_OVERRIDE.current();
+        }
+        if (null == result) {
+            result = SchedulerScope.DEFAULTS.current();
+        }
+        return result;
+    }
+    
+    // Thread-local per scope as it was before the single carrier
+    static final class LegacyScopes {
+        private final ThreadLocal<Scheduler>[] schedulers;
+        
+        @SuppressWarnings("unchecked")
+        LegacyScopes() {
+            schedulers = new ThreadLocal[SchedulerScope.values().length];
+            for (int i = 0; i < schedulers.length; i++) {
+                schedulers[i] = new ThreadLocal<>();
+            }
+        }
+        
+        Scheduler resolve() {
+            Scheduler result = schedulers[SchedulerScope.PROVIDER_OVERRIDE.ordinal()].get();
+            if (null == result) {
+                result = schedulers[SchedulerScope.DEFAULTS_OVERRIDE.ordinal()].get();
+            }
+            if (null == result) {
+                result = schedulers[SchedulerScope.DEFAULTS.ordinal()].get();
+            }
+            return result;
+        }
+        
+        <V> V callWith(SchedulerScope scope, Scheduler scheduler, Callable<V> code) throws Exception {
+            ThreadLocal<Scheduler> current = schedulers[scope.ordinal()];
+            Scheduler previous = current.get();
+            current.set(scheduler);
+            try {
+                return code.call();
+            } finally {
+                if (null == previous) {
+                    current.remove();
+                } else {
+                    current.set(previous);
+                }
+            }
+        }
+    }
+}
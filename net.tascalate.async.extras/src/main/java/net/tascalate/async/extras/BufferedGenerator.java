@@ -0,0 +1,65 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.extras;
+
+import java.util.concurrent.CompletionStage;
+
+import net.tascalate.async.AsyncGenerator;
+import net.tascalate.async.CallContext;
+
+/**
+ * Generator that takes elements from the {@link ConsumerBuffer} filled by producers running 
+ * ahead, like in {@link Generators#prefetch(net.tascalate.async.Sequence, int)} and 
+ * {@link Generators#merge(net.tascalate.async.Sequence...)}. Parameters passed to 
+ * {@link #next(Object)} can't be relayed to the producers, so they are ignored.
+ */
+class BufferedGenerator<T> implements AsyncGenerator<T> {
+    private final ConsumerBuffer<T> buffer;
+    
+    BufferedGenerator(ConsumerBuffer<T> buffer) {
+        this.buffer = buffer;
+    }
+    
+    @Override
+    public CompletionStage<T> next() {
+        CallContext.await(buffer.whenItemAvailable());
+        return buffer.poll();
+    }
+    
+    @Override
+    public CompletionStage<T> next(Object param) {
+        return next();
+    }
+
+    @Override
+    public void close() {
+        buffer.close();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[buffer=%s]", getClass().getSimpleName(), buffer);
+    }
+}
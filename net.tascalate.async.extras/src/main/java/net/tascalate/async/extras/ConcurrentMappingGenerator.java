@@ -0,0 +1,207 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.extras;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import net.tascalate.async.AsyncGenerator;
+import net.tascalate.async.CallContext;
+import net.tascalate.async.Sequence;
+
+/**
+ * Generator of {@link Generators#mapConcurrent(Sequence, Function, int, boolean)}: the source 
+ * is advanced only while fewer than parallelism slots are taken. A slot is taken when the call
+ * is started and released once its result is both emitted and completed, so consumers that 
+ * don't await emitted results (like {@link Generators#prefetch(Sequence, int)}) can't exceed 
+ * the parallelism. In ordered mode results are emitted in source order from the reorder queue; 
+ * otherwise completed results are emitted as they arrive, the consumer waits on the single 
+ * shared completion signal. Parameters passed to {@link #next(Object)} are ignored.
+ */
+final class ConcurrentMappingGenerator<T, R> implements AsyncGenerator<R> {
+    private static final CompletableFuture<Void> RESULT_AVAILABLE = CompletableFuture.completedFuture(null);
+    private static final CompletableFuture<Void> SLOT_AVAILABLE   = CompletableFuture.completedFuture(null);
+    
+    private final Sequence<? extends CompletionStage<T>> source;
+    private final Function<? super T, ? extends CompletionStage<R>> mapper;
+    private final int parallelism;
+    private final boolean ordered;
+    
+    // Accessed by the consumer only
+    private boolean sourceDone;
+    // Started but not emitted yet
+    private int active;
+    private final ArrayDeque<CompletionStage<R>> started = new ArrayDeque<>();
+    
+    // Shared with completion callbacks
+    private final ArrayDeque<CompletionStage<R>> completed = new ArrayDeque<>();
+    private CompletableFuture<Void> completionAwait;
+    private int takenSlots;
+    private CompletableFuture<Void> slotAwait;
+    
+    ConcurrentMappingGenerator(Sequence<? extends CompletionStage<T>> source, 
+                               Function<? super T, ? extends CompletionStage<R>> mapper,
+                               int parallelism, 
+                               boolean ordered) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.source = source;
+        this.mapper = mapper;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+    }
+    
+    @Override
+    public CompletionStage<R> next() {
+        while (true) {
+            // Start more calls while there is a capacity
+            while (!sourceDone && takeSlot()) {
+                CompletionStage<T> next;
+                try {
+                    next = source.next();
+                } catch (Throwable ex) {
+                    releaseSlot();
+                    throw ex;
+                }
+                if (null == next) {
+                    releaseSlot();
+                    sourceDone = true;
+                    break;
+                }
+                CompletionStage<R> call = next.thenCompose(mapper);
+                active++;
+                if (ordered) {
+                    started.add(call);
+                } else {
+                    call.whenComplete((r, e) -> onCompleted(call));
+                }
+            }
+            if (0 != active) {
+                break;
+            }
+            if (sourceDone) {
+                return null;
+            }
+            // All slots are taken by emitted calls that are not completed yet
+            CallContext.await(whenSlotReleased());
+        }
+        CompletionStage<R> result;
+        if (ordered) {
+            // The consumer awaits the result in source order
+            result = started.poll();
+            result.whenComplete((r, e) -> releaseSlot());
+        } else {
+            CallContext.await(whenCompleted());
+            result = pollCompleted();
+            releaseSlot();
+        }
+        active--;
+        return result;
+    }
+    
+    @Override
+    public CompletionStage<R> next(Object param) {
+        return next();
+    }
+
+    @Override
+    public void close() {
+        sourceDone = true;
+        active = 0;
+        started.clear();
+        synchronized (this) {
+            completed.clear();
+        }
+        source.close();
+    }
+    
+    private void onCompleted(CompletionStage<R> call) {
+        CompletableFuture<Void> pendingAwait;
+        synchronized (this) {
+            completed.add(call);
+            pendingAwait = completionAwait;
+            completionAwait = null;
+        }
+        // Resume consumer outside of the lock
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+    }
+    
+    private synchronized CompletionStage<Void> whenCompleted() {
+        if (!completed.isEmpty()) {
+            return RESULT_AVAILABLE;
+        } else {
+            completionAwait = new CompletableFuture<>();
+            return completionAwait;
+        }
+    }
+    
+    private synchronized CompletionStage<R> pollCompleted() {
+        return completed.poll();
+    }
+    
+    private synchronized boolean takeSlot() {
+        if (takenSlots < parallelism) {
+            takenSlots++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+    
+    private void releaseSlot() {
+        CompletableFuture<Void> pendingAwait;
+        synchronized (this) {
+            takenSlots--;
+            pendingAwait = slotAwait;
+            slotAwait = null;
+        }
+        // Resume consumer outside of the lock
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+    }
+    
+    private synchronized CompletionStage<Void> whenSlotReleased() {
+        if (takenSlots < parallelism) {
+            return SLOT_AVAILABLE;
+        } else {
+            slotAwait = new CompletableFuture<>();
+            return slotAwait;
+        }
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "%s[source=%s, parallelism=%d, ordered=%s, active=%d, taken-slots=%d]", 
+            getClass().getSimpleName(), source, parallelism, ordered, active, takenSlots
+        );
+    }
+}
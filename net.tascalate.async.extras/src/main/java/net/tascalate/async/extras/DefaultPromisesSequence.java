@@ -24,6 +24,8 @@
  */
 package net.tascalate.async.extras;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletionStage;
 
 import net.tascalate.async.Sequence;
@@ -44,6 +46,16 @@ public class DefaultPromisesSequence<T> implements PromisesSequence<T> {
         return null == original ? null : Promises.from(original);
     }
 
+    @Override
+    public List<Promise<T>> nextBatch(int maxCount) {
+        List<? extends CompletionStage<T>> original = delegate.nextBatch(maxCount);
+        List<Promise<T>> result = new ArrayList<>(original.size());
+        for (CompletionStage<T> element : original) {
+            result.add(Promises.from(element));
+        }
+        return result;
+    }
+
     @Override
     public void close() {
         delegate.close();
@@ -0,0 +1,296 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.extras;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import net.tascalate.async.AsyncGenerator;
+import net.tascalate.async.CallContext;
+import net.tascalate.async.Sequence;
+
+/**
+ * Generator that applies a chain of operators (see {@link Generators#map(Sequence, Function)} 
+ * and others) to the source in a single pull loop: every source element is awaited once 
+ * and passed through all stages, so there is no intermediate generator (with its own 
+ * continuation and handoff) per operator. Applying one more operator to the fused 
+ * generator that is not advanced yet creates a new one with the longer chain over 
+ * the same source; otherwise the generator is wrapped, so the state of its stages 
+ * is preserved. 
+ * Parameters passed to {@link #next(Object)} are ignored.
+ */
+final class FusedGenerator<T> implements AsyncGenerator<T> {
+    // Stage results other than the value
+    static final Object SKIP = new Object();
+    static final Object STOP = new Object();
+    
+    private final Sequence<? extends CompletionStage<?>> source;
+    private final Stage[] stages;
+    private boolean advanced;
+    private boolean stopped;
+    
+    private FusedGenerator(Sequence<? extends CompletionStage<?>> source, Stage[] stages) {
+        this.source = source;
+        this.stages = stages;
+    }
+    
+    static <T, R> FusedGenerator<R> fuse(Sequence<? extends CompletionStage<T>> source, Stage stage) {
+        if (source instanceof FusedGenerator && !((FusedGenerator<?>)source).advanced) {
+            FusedGenerator<?> upstream = (FusedGenerator<?>)source;
+            Stage[] stages = Arrays.copyOf(upstream.stages, upstream.stages.length + 1);
+            stages[upstream.stages.length] = stage;
+            return new FusedGenerator<>(upstream.source, stages);
+        } else {
+            return new FusedGenerator<>(source, new Stage[] {stage});
+        }
+    }
+    
+    static <T, R> FusedGenerator<R> flatMap(Sequence<? extends CompletionStage<T>> source, 
+                                            Function<? super T, ? extends Sequence<? extends CompletionStage<R>>> mapper) {
+        // Flattening changes the shape of the pipeline, so stages after it are fused over the flattened one
+        return new FusedGenerator<>(new FlatteningSequence<>(source, mapper), new Stage[0]);
+    }
+    
+    @Override
+    public CompletionStage<T> next() {
+        advanced = true;
+        while (!stopped) {
+            if (isExhausted()) {
+                // Don't advance source when no more elements may pass
+                stopped = true;
+                break;
+            }
+            CompletionStage<?> next = source.next();
+            if (null == next) {
+                stopped = true;
+                break;
+            }
+            Object value = CallContext.await(next);
+            for (int i = 0; i < stages.length && SKIP != value && STOP != value; i++) {
+                value = stages[i].apply(value);
+            }
+            if (STOP == value) {
+                stopped = true;
+            } else if (SKIP != value) {
+                @SuppressWarnings("unchecked")
+                T result = (T)value;
+                return CompletableFuture.completedFuture(result);
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public CompletionStage<T> next(Object param) {
+        return next();
+    }
+
+    @Override
+    public void close() {
+        advanced = true;
+        stopped = true;
+        source.close();
+    }
+    
+    private boolean isExhausted() {
+        for (Stage stage : stages) {
+            if (stage.isExhausted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[source=%s, stages=%d]", getClass().getSimpleName(), source, stages.length);
+    }
+    
+    abstract static class Stage {
+        /**
+         * @return transformed value, or {@link FusedGenerator#SKIP} to drop the value, 
+         * or {@link FusedGenerator#STOP} to complete the generator
+         */
+        abstract Object apply(Object value);
+        
+        /**
+         * @return true when no more values may pass this stage
+         */
+        boolean isExhausted() {
+            return false;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T, R> Stage map(Function<? super T, ? extends R> mapper) {
+        return new Stage() {
+            @Override
+            Object apply(Object value) {
+                return mapper.apply((T)value);
+            }
+        };
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T> Stage filter(Predicate<? super T> predicate) {
+        return new Stage() {
+            @Override
+            Object apply(Object value) {
+                return predicate.test((T)value) ? value : SKIP;
+            }
+        };
+    }
+    
+    static Stage take(long maxSize) {
+        return new Stage() {
+            private long remaining = maxSize;
+            
+            @Override
+            Object apply(Object value) {
+                if (remaining <= 0) {
+                    return STOP;
+                }
+                remaining--;
+                return value;
+            }
+            
+            @Override
+            boolean isExhausted() {
+                return remaining <= 0;
+            }
+        };
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T> Stage takeWhile(Predicate<? super T> predicate) {
+        return new Stage() {
+            private boolean stopped;
+            
+            @Override
+            Object apply(Object value) {
+                if (stopped || !predicate.test((T)value)) {
+                    stopped = true;
+                    return STOP;
+                }
+                return value;
+            }
+            
+            @Override
+            boolean isExhausted() {
+                return stopped;
+            }
+        };
+    }
+    
+    static Stage skip(long n) {
+        return new Stage() {
+            private long remaining = n;
+            
+            @Override
+            Object apply(Object value) {
+                if (remaining > 0) {
+                    remaining--;
+                    return SKIP;
+                }
+                return value;
+            }
+        };
+    }
+    
+    static Stage distinct() {
+        return new Stage() {
+            private final Set<Object> seen = new HashSet<>();
+            
+            @Override
+            Object apply(Object value) {
+                return seen.add(value) ? value : SKIP;
+            }
+        };
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T, R> Stage scan(R identity, BiFunction<R, ? super T, R> accumulator) {
+        return new Stage() {
+            private R state = identity;
+            
+            @Override
+            Object apply(Object value) {
+                state = accumulator.apply(state, (T)value);
+                return state;
+            }
+        };
+    }
+    
+    static final class FlatteningSequence<T, R> implements Sequence<CompletionStage<R>> {
+        private final Sequence<? extends CompletionStage<T>> source;
+        private final Function<? super T, ? extends Sequence<? extends CompletionStage<R>>> mapper;
+        private Sequence<? extends CompletionStage<R>> current;
+        
+        FlatteningSequence(Sequence<? extends CompletionStage<T>> source, 
+                           Function<? super T, ? extends Sequence<? extends CompletionStage<R>>> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+        
+        @Override
+        public CompletionStage<R> next() {
+            while (true) {
+                if (null != current) {
+                    CompletionStage<R> next = current.next();
+                    if (null != next) {
+                        return next;
+                    }
+                    current.close();
+                    current = null;
+                }
+                CompletionStage<T> next = source.next();
+                if (null == next) {
+                    return null;
+                }
+                current = mapper.apply(CallContext.await(next));
+            }
+        }
+        
+        @Override
+        public void close() {
+            if (null != current) {
+                current.close();
+                current = null;
+            }
+            source.close();
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s[source=%s, current=%s]", getClass().getSimpleName(), source, current);
+        }
+    }
+}
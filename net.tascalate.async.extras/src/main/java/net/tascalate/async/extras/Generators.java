@@ -24,20 +24,30 @@
  */
 package net.tascalate.async.extras;
 
+import static net.tascalate.async.CallContext.async;
+import static net.tascalate.async.CallContext.await;
 import static net.tascalate.async.CallContext.yield;
 
 import java.time.Duration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import net.tascalate.async.AsyncGenerator;
 import net.tascalate.async.Scheduler;
 import net.tascalate.async.Sequence;
+import net.tascalate.async.SchedulerProvider;
 import net.tascalate.async.async;
 
 import net.tascalate.async.spi.CurrentCallContext;
@@ -68,6 +78,181 @@ public class Generators {
         return yield();
     }
     
+    /**
+     * Merges sequences so that elements are emitted in the order they become settled 
+     * rather than one sequence after another (like {@link #concat(Sequence...)} does). 
+     * Every source is advanced by its own lightweight async method, with at most one 
+     * element taken ahead of the consumer; no thread is blocked per source. 
+     * Closing the result closes all sources, each one after its pending element is settled.
+     */
+    @SafeVarargs
+    public static <T> AsyncGenerator<T> merge(Sequence<? extends CompletionStage<T>>... sequences) {
+        return merge(Arrays.asList(sequences));
+    }
+    
+    public static <T> AsyncGenerator<T> merge(Iterable<? extends Sequence<? extends CompletionStage<T>>> sequences) {
+        List<Sequence<? extends CompletionStage<T>>> sources = new ArrayList<>();
+        sequences.forEach(sources::add);
+        MergeBuffer<T> buffer = new MergeBuffer<>(sources.size());
+        for (Sequence<? extends CompletionStage<T>> source : sources) {
+            pump(source, buffer);
+        }
+        return new BufferedGenerator<>(buffer);
+    }
+    
+    public static <T> AsyncGenerator<T> merge(Stream<? extends Sequence<? extends CompletionStage<T>>> sequences) {
+        return merge(sequences.collect(Collectors.toList()));
+    }
+    
+    private static @async <T> CompletionStage<Void> pump(Sequence<? extends CompletionStage<T>> source, MergeBuffer<T> buffer) {
+        try {
+            while (true) {
+                CompletionStage<T> next = source.next();
+                if (null == next) {
+                    break;
+                }
+                try {
+                    await(next);
+                } catch (Throwable ex) {
+                    // Only wait till settled, the outcome is passed to the consumer as is
+                }
+                if (!await(buffer.offer(next))) {
+                    // Closed by consumer
+                    break;
+                }
+            }
+        } catch (Throwable ex) {
+            // Report error of the source itself
+            CompletableFuture<T> failure = new CompletableFuture<>();
+            failure.completeExceptionally(ex);
+            buffer.offer(failure);
+        } finally {
+            source.close();
+            buffer.sourceCompleted();
+        }
+        return async(null);
+    }
+    
+    /**
+     * Decorates the sequence so that it's advanced eagerly, up to bufferSize elements ahead
+     * of the consumer, to overlap latencies of the slow producer and the slow consumer. 
+     * The producer is suspended while the buffer is full. Closing the result closes the source.
+     * @param source sequence to advance, typically an {@link AsyncGenerator}
+     * @param bufferSize maximum number of elements produced ahead
+     * @return the generator of prefetched elements
+     */
+    public static <T> AsyncGenerator<T> prefetch(Sequence<? extends CompletionStage<T>> source, int bufferSize) {
+        return prefetch(source, bufferSize, null);
+    }
+    
+    /**
+     * The same as {@link #prefetch(Sequence, int)} but the source is advanced via the scheduler
+     * specified; when null then the scheduler is resolved as usual.
+     */
+    public static <T> AsyncGenerator<T> prefetch(Sequence<? extends CompletionStage<T>> source, int bufferSize, Scheduler scheduler) {
+        PrefetchBuffer<T> buffer = new PrefetchBuffer<>(bufferSize);
+        fill(source, buffer, scheduler);
+        return new BufferedGenerator<>(buffer);
+    }
+    
+    private static @async <T> CompletionStage<Void> fill(Sequence<? extends CompletionStage<T>> source, 
+                                                         PrefetchBuffer<T> buffer, 
+                                                         @SchedulerProvider Scheduler scheduler) {
+        Throwable error = null;
+        try {
+            // Backpressure - wait for a free slot before advancing the source
+            while (await(buffer.whenSpaceAvailable())) {
+                CompletionStage<T> next = source.next();
+                if (null == next) {
+                    break;
+                }
+                buffer.offer(next);
+            }
+        } catch (Throwable ex) {
+            error = ex;
+        } finally {
+            source.close();
+        }
+        buffer.complete(error);
+        return async(null);
+    }
+    
+    /**
+     * Transforms every element of the source. This and other operators below are fused: 
+     * a chain of operators is applied to the source in a single pull loop, without 
+     * an intermediate generator per operator. Closing the result closes the source.
+     */
+    public static <T, R> AsyncGenerator<R> map(Sequence<? extends CompletionStage<T>> source, 
+                                               Function<? super T, ? extends R> mapper) {
+        return FusedGenerator.fuse(source, FusedGenerator.map(mapper));
+    }
+    
+    public static <T> AsyncGenerator<T> filter(Sequence<? extends CompletionStage<T>> source, 
+                                               Predicate<? super T> predicate) {
+        return FusedGenerator.fuse(source, FusedGenerator.filter(predicate));
+    }
+    
+    /**
+     * Replaces every element of the source with the sequence produced by the mapper,
+     * inner sequences are drained one by one
+     */
+    public static <T, R> AsyncGenerator<R> flatMap(Sequence<? extends CompletionStage<T>> source, 
+                                                   Function<? super T, ? extends Sequence<? extends CompletionStage<R>>> mapper) {
+        return FusedGenerator.flatMap(source, mapper);
+    }
+    
+    /**
+     * Limits the number of elements, the source is not advanced after maxSize elements are taken
+     */
+    public static <T> AsyncGenerator<T> take(Sequence<? extends CompletionStage<T>> source, long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max size must be non-negative: " + maxSize);
+        }
+        return FusedGenerator.fuse(source, FusedGenerator.take(maxSize));
+    }
+    
+    public static <T> AsyncGenerator<T> takeWhile(Sequence<? extends CompletionStage<T>> source, 
+                                                  Predicate<? super T> predicate) {
+        return FusedGenerator.fuse(source, FusedGenerator.takeWhile(predicate));
+    }
+    
+    public static <T> AsyncGenerator<T> skip(Sequence<? extends CompletionStage<T>> source, long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of skipped elements must be non-negative: " + n);
+        }
+        return FusedGenerator.fuse(source, FusedGenerator.skip(n));
+    }
+    
+    public static <T> AsyncGenerator<T> distinct(Sequence<? extends CompletionStage<T>> source) {
+        return FusedGenerator.fuse(source, FusedGenerator.distinct());
+    }
+    
+    /**
+     * Emits the accumulated value after every element of the source (the identity itself is not emitted)
+     */
+    public static <T, R> AsyncGenerator<R> scan(Sequence<? extends CompletionStage<T>> source, 
+                                                R identity, BiFunction<R, ? super T, R> accumulator) {
+        return FusedGenerator.fuse(source, FusedGenerator.scan(identity, accumulator));
+    }
+    
+    /**
+     * Transforms elements of the source with the asynchronous function, with at most 
+     * parallelism calls in progress: the call is counted from its start till its result 
+     * is both emitted and completed, the source is advanced only when there is a capacity. 
+     * Closing the result closes the source.
+     * @param source sequence of elements to transform
+     * @param mapper asynchronous function
+     * @param parallelism maximum number of elements in progress
+     * @param ordered when true results are emitted in source order, otherwise in completion order
+     * @return the generator of results
+     */
+    public static <T, R> AsyncGenerator<R> mapConcurrent(Sequence<? extends CompletionStage<T>> source,
+                                                         Function<? super T, ? extends CompletionStage<R>> mapper,
+                                                         int parallelism,
+                                                         boolean ordered) {
+        return new ConcurrentMappingGenerator<>(source, mapper, parallelism, ordered);
+    }
+    
     public static @async AsyncGenerator<Duration> delays(Duration duration) {
         Executor executor = new CurrentSchedulerExecutor(CurrentCallContext.scheduler());
         while (true) {
@@ -0,0 +1,148 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.extras;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Queue of settled elements shared by all sources of {@link Generators#merge(net.tascalate.async.Sequence...)}.
+ * Every source offers at most one element at a time and waits till it's taken by the consumer;
+ * the consumer waits on the single shared signal, regardless of the number of sources.
+ */
+final class MergeBuffer<T> implements ConsumerBuffer<T> {
+    private static final CompletableFuture<Boolean> BUFFER_CLOSED  = CompletableFuture.completedFuture(Boolean.FALSE);
+    private static final CompletableFuture<Void>    ITEM_AVAILABLE = CompletableFuture.completedFuture(null);
+    
+    private final ArrayDeque<Entry<T>> ready = new ArrayDeque<>();
+    private int activeSources;
+    private boolean closed;
+    
+    private CompletableFuture<Void> itemAwait;
+    
+    MergeBuffer(int sourcesCount) {
+        this.activeSources = sourcesCount;
+    }
+    
+    /**
+     * Source side: enqueues the settled element
+     * @return stage resolved with true once the element is taken, or with false 
+     * when the buffer is closed by the consumer
+     */
+    CompletionStage<Boolean> offer(CompletionStage<T> item) {
+        CompletableFuture<Void> pendingAwait;
+        Entry<T> entry;
+        synchronized (this) {
+            if (closed) {
+                return BUFFER_CLOSED;
+            }
+            entry = new Entry<>(item);
+            ready.add(entry);
+            pendingAwait = itemAwait;
+            itemAwait = null;
+        }
+        // Resume consumer outside of the lock
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+        return entry.taken;
+    }
+    
+    void sourceCompleted() {
+        CompletableFuture<Void> pendingAwait;
+        synchronized (this) {
+            activeSources--;
+            if (activeSources > 0) {
+                return;
+            }
+            pendingAwait = itemAwait;
+            itemAwait = null;
+        }
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+    }
+    
+    /**
+     * Consumer side: resolved once there is an item to poll or all sources are completed
+     */
+    @Override
+    public synchronized CompletionStage<Void> whenItemAvailable() {
+        if (!ready.isEmpty() || activeSources <= 0 || closed) {
+            return ITEM_AVAILABLE;
+        } else {
+            itemAwait = new CompletableFuture<>();
+            return itemAwait;
+        }
+    }
+    
+    /**
+     * @return next settled element or null if all sources are completed
+     */
+    @Override
+    public CompletionStage<T> poll() {
+        Entry<T> entry;
+        synchronized (this) {
+            entry = ready.poll();
+        }
+        if (null == entry) {
+            return null;
+        }
+        // Let the source advance (outside of the lock)
+        entry.taken.complete(Boolean.TRUE);
+        return entry.item;
+    }
+    
+    @Override
+    public void close() {
+        ArrayDeque<Entry<T>> pending;
+        synchronized (this) {
+            closed = true;
+            pending = new ArrayDeque<>(ready);
+            ready.clear();
+        }
+        for (Entry<T> entry : pending) {
+            entry.taken.complete(Boolean.FALSE);
+        }
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "%s[ready=%d, active-sources=%d, closed=%s]", 
+            getClass().getSimpleName(), ready.size(), activeSources, closed
+        );
+    }
+    
+    static final class Entry<T> {
+        final CompletionStage<T> item;
+        final CompletableFuture<Boolean> taken = new CompletableFuture<>();
+        
+        Entry(CompletionStage<T> item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.extras;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Bounded ring buffer between the prefetching producer and the consumer of 
+ * {@link Generators#prefetch(net.tascalate.async.Sequence, int)}. Both sides 
+ * are single, so waiting is done with at most one pending future per side.
+ */
+final class PrefetchBuffer<T> implements ConsumerBuffer<T> {
+    private static final CompletableFuture<Boolean> SPACE_AVAILABLE = CompletableFuture.completedFuture(Boolean.TRUE);
+    private static final CompletableFuture<Boolean> BUFFER_CLOSED   = CompletableFuture.completedFuture(Boolean.FALSE);
+    private static final CompletableFuture<Void>    ITEM_AVAILABLE  = CompletableFuture.completedFuture(null);
+    
+    private final Object[] items;
+    private int head;
+    private int count;
+    
+    private boolean completed;
+    private boolean closed;
+    private Throwable error;
+    
+    private CompletableFuture<Boolean> spaceAwait;
+    private CompletableFuture<Void> itemAwait;
+    
+    PrefetchBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.items = new Object[capacity];
+    }
+    
+    /**
+     * Producer side: resolved with true once there is a free slot, or with false 
+     * when the buffer is closed by the consumer
+     */
+    synchronized CompletionStage<Boolean> whenSpaceAvailable() {
+        if (closed) {
+            return BUFFER_CLOSED;
+        } else if (count < items.length) {
+            return SPACE_AVAILABLE;
+        } else {
+            spaceAwait = new CompletableFuture<>();
+            return spaceAwait;
+        }
+    }
+    
+    void offer(CompletionStage<T> item) {
+        CompletableFuture<Void> pendingAwait;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (count == items.length) {
+                throw new IllegalStateException("Buffer is full");
+            }
+            items[(head + count) % items.length] = item;
+            count++;
+            pendingAwait = itemAwait;
+            itemAwait = null;
+        }
+        // Resume consumer outside of the lock
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+    }
+    
+    void complete(Throwable error) {
+        CompletableFuture<Void> pendingAwait;
+        synchronized (this) {
+            completed  = true;
+            this.error = error;
+            pendingAwait = itemAwait;
+            itemAwait = null;
+        }
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+    }
+    
+    /**
+     * Consumer side: resolved once there is an item to poll or the producer is completed
+     */
+    @Override
+    public synchronized CompletionStage<Void> whenItemAvailable() {
+        if (count > 0 || completed) {
+            return ITEM_AVAILABLE;
+        } else {
+            itemAwait = new CompletableFuture<>();
+            return itemAwait;
+        }
+    }
+    
+    /**
+     * @return next item or null if the producer is completed
+     */
+    @Override
+    public CompletionStage<T> poll() {
+        CompletableFuture<Boolean> pendingAwait;
+        CompletionStage<T> result;
+        synchronized (this) {
+            if (0 == count) {
+                if (null != error) {
+                    Throwable ex = error;
+                    // Report error only once
+                    error = null;
+                    return sneakyThrow(ex);
+                }
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            CompletionStage<T> item = (CompletionStage<T>)items[head];
+            items[head] = null;
+            head = (head + 1) % items.length;
+            count--;
+            result = item;
+            pendingAwait = spaceAwait;
+            spaceAwait = null;
+        }
+        // Resume producer outside of the lock
+        if (null != pendingAwait) {
+            pendingAwait.complete(Boolean.TRUE);
+        }
+        return result;
+    }
+    
+    @Override
+    public void close() {
+        CompletableFuture<Boolean> pendingAwait;
+        synchronized (this) {
+            closed = true;
+            completed = true;
+            error = null;
+            for (int i = 0; i < count; i++) {
+                items[(head + i) % items.length] = null;
+            }
+            count = 0;
+            pendingAwait = spaceAwait;
+            spaceAwait = null;
+        }
+        if (null != pendingAwait) {
+            pendingAwait.complete(Boolean.FALSE);
+        }
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "%s[capacity=%d, size=%d, completed=%s, closed=%s]", 
+            getClass().getSimpleName(), items.length, count, completed, closed
+        );
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T, E extends Throwable> T sneakyThrow(Throwable ex) throws E {
+        throw (E)ex;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.flow;
+
+import static net.tascalate.async.CallContext.async;
+import static net.tascalate.async.CallContext.await;
+
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.tascalate.async.AsyncGenerator;
+import net.tascalate.async.Scheduler;
+import net.tascalate.async.SchedulerProvider;
+import net.tascalate.async.Sequence;
+import net.tascalate.async.async;
+
+/**
+ * Adapters between {@link AsyncGenerator}-s and {@link java.util.concurrent.Flow} API
+ */
+public final class Flows {
+    private static final Logger log = LoggerFactory.getLogger(Flows.class);
+    
+    private Flows() {}
+    
+    /**
+     * Creates a {@link Flow.Publisher} view of the generator (or any other sequence of stages). 
+     * The source is advanced only when the subscriber has an outstanding demand, 
+     * so exactly as many elements are produced as requested; every element is awaited 
+     * before it's passed to {@link Flow.Subscriber#onNext(Object)}. The source may be 
+     * consumed only once, so the publisher accepts a single subscriber. 
+     * {@link Flow.Subscription#cancel()} closes the source - right away when the 
+     * publisher is waiting for demand, otherwise once the pending element is settled.
+     * When the subscriber throws from its method the subscription is considered cancelled
+     * (rule 2.13): the source is closed, no more signals are emitted and the error is logged.
+     * @param <T> type of elements
+     * @param source the generator to publish
+     * @return the publisher
+     */
+    public static <T> Flow.Publisher<T> toPublisher(Sequence<? extends CompletionStage<T>> source) {
+        return toPublisher(source, null);
+    }
+    
+    /**
+     * The same as {@link #toPublisher(Sequence)} but signals are emitted via the scheduler
+     * specified; when null then the scheduler is resolved as usual.
+     */
+    public static <T> Flow.Publisher<T> toPublisher(Sequence<? extends CompletionStage<T>> source, Scheduler scheduler) {
+        Objects.requireNonNull(source, "Source must be non-null");
+        AtomicBoolean subscribed = new AtomicBoolean();
+        return subscriber -> {
+            // Rule 1.9
+            Objects.requireNonNull(subscriber, "Subscriber must be non-null");
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new GeneratorSubscription<>(subscriber));
+                subscriber.onError(new IllegalStateException("Publisher of " + source + " allows only a single subscriber"));
+                return;
+            }
+            GeneratorSubscription<T> subscription = new GeneratorSubscription<>(subscriber);
+            try {
+                subscriber.onSubscribe(subscription);
+            } catch (Throwable ex) {
+                subscriberFailed(subscription, "onSubscribe", ex);
+                source.close();
+                return;
+            }
+            emit(source, subscription, scheduler);
+        };
+    }
+    
+    /**
+     * Subscribes to the publisher and exposes received items as a generator, with the 
+     * window of {@link Flow#defaultBufferSize()} items.
+     * @see #toGenerator(Flow.Publisher, int)
+     */
+    public static <T> AsyncGenerator<T> toGenerator(Flow.Publisher<? extends T> publisher) {
+        return toGenerator(publisher, Flow.defaultBufferSize());
+    }
+    
+    /**
+     * Subscribes to the publisher and exposes received items as a generator. Up to 
+     * window items are requested and buffered ahead of the consumer, so {@link AsyncGenerator#next()}
+     * suspends only when the buffer is empty. Demand is refilled in batches, once half 
+     * of the window is consumed. Closing the generator cancels the subscription.
+     * @param <T> type of elements
+     * @param publisher the publisher to subscribe
+     * @param window maximum number of items requested but not consumed yet
+     * @return the generator of published items
+     */
+    public static <T> AsyncGenerator<T> toGenerator(Flow.Publisher<? extends T> publisher, int window) {
+        Objects.requireNonNull(publisher, "Publisher must be non-null");
+        SubscriberBuffer<T> buffer = new SubscriberBuffer<>(window);
+        publisher.subscribe(buffer);
+        return new PublisherGenerator<>(buffer);
+    }
+    
+    private static @async <T> CompletionStage<Void> emit(Sequence<? extends CompletionStage<T>> source, 
+                                                         GeneratorSubscription<T> subscription,
+                                                         @SchedulerProvider Scheduler scheduler) {
+        Flow.Subscriber<? super T> subscriber = subscription.subscriber;
+        Throwable error = null;
+        boolean completed = false;
+        try {
+            // Backpressure - wait for demand before advancing the source
+            while (await(subscription.whenDemanded())) {
+                error = subscription.invalidRequest();
+                if (null != error) {
+                    break;
+                }
+                CompletionStage<T> next = source.next();
+                if (null == next) {
+                    completed = true;
+                    break;
+                }
+                T value = await(next);
+                if (null == value) {
+                    // Rule 2.13
+                    throw new NullPointerException("Null element produced by " + source);
+                }
+                if (!subscription.consume()) {
+                    break;
+                }
+                try {
+                    subscriber.onNext(value);
+                } catch (Throwable ex) {
+                    // Not an error of the source, so it's not reported back to the subscriber
+                    subscriberFailed(subscription, "onNext", ex);
+                    break;
+                }
+            }
+        } catch (Throwable ex) {
+            error = ex;
+        } finally {
+            source.close();
+        }
+        if (subscription.terminate()) {
+            try {
+                if (null != error) {
+                    subscriber.onError(error);
+                } else if (completed) {
+                    subscriber.onComplete();
+                }
+            } catch (Throwable ex) {
+                subscriberFailed(subscription, null != error ? "onError" : "onComplete", ex);
+            }
+        }
+        return async(null);
+    }
+    
+    // Rule 2.13: the subscription is considered cancelled
+    private static void subscriberFailed(GeneratorSubscription<?> subscription, String method, Throwable error) {
+        subscription.cancel();
+        log.error("Subscriber " + subscription.subscriber + " violated rule 2.13: " + method + " threw an exception, subscription is cancelled", error);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.flow;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Subscription of the publisher created by {@link Flows#toPublisher(net.tascalate.async.Sequence)}:
+ * accumulates demand signalled by the subscriber and resumes the single emitting 
+ * async method when the demand becomes available.
+ */
+final class GeneratorSubscription<T> implements Flow.Subscription {
+    private static final CompletableFuture<Boolean> DEMAND_AVAILABLE = CompletableFuture.completedFuture(Boolean.TRUE);
+    private static final CompletableFuture<Boolean> CANCELLED        = CompletableFuture.completedFuture(Boolean.FALSE);
+    
+    final Flow.Subscriber<? super T> subscriber;
+    
+    private long demand;
+    private boolean cancelled;
+    private boolean terminated;
+    private IllegalArgumentException invalidRequest;
+    
+    private CompletableFuture<Boolean> demandAwait;
+    
+    GeneratorSubscription(Flow.Subscriber<? super T> subscriber) {
+        this.subscriber = subscriber;
+    }
+    
+    @Override
+    public void request(long n) {
+        CompletableFuture<Boolean> pendingAwait;
+        synchronized (this) {
+            if (cancelled || terminated) {
+                return;
+            }
+            if (n <= 0) {
+                // Reported via onError by the emitting method (rule 3.9)
+                if (null == invalidRequest) {
+                    invalidRequest = new IllegalArgumentException("Requested number of items must be positive: " + n);
+                }
+            } else {
+                // Saturate on overflow, Long.MAX_VALUE is unbounded demand (rule 3.17)
+                long updated = demand + n;
+                demand = updated < 0 ? Long.MAX_VALUE : updated;
+            }
+            pendingAwait = demandAwait;
+            demandAwait = null;
+        }
+        // Resume emitting method outside of the lock
+        if (null != pendingAwait) {
+            pendingAwait.complete(Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        CompletableFuture<Boolean> pendingAwait;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            pendingAwait = demandAwait;
+            demandAwait = null;
+        }
+        if (null != pendingAwait) {
+            pendingAwait.complete(Boolean.FALSE);
+        }
+    }
+    
+    /**
+     * Resolved with true once there is a demand (or an invalid request to report), 
+     * or with false when the subscription is cancelled
+     */
+    synchronized CompletionStage<Boolean> whenDemanded() {
+        if (cancelled) {
+            return CANCELLED;
+        } else if (demand > 0 || null != invalidRequest) {
+            return DEMAND_AVAILABLE;
+        } else {
+            demandAwait = new CompletableFuture<>();
+            return demandAwait;
+        }
+    }
+    
+    synchronized IllegalArgumentException invalidRequest() {
+        return invalidRequest;
+    }
+    
+    /**
+     * Takes one item of the demand before emitting it
+     * @return false if the subscription is cancelled meanwhile
+     */
+    synchronized boolean consume() {
+        if (cancelled) {
+            return false;
+        }
+        if (demand != Long.MAX_VALUE) {
+            demand--;
+        }
+        return true;
+    }
+    
+    /**
+     * Marks the subscription as terminated before emitting terminal signal
+     * @return false if the subscription is cancelled, so no signal should be emitted
+     */
+    synchronized boolean terminate() {
+        terminated = true;
+        return !cancelled;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "%s[subscriber=%s, demand=%d, cancelled=%s, terminated=%s]", 
+            getClass().getSimpleName(), subscriber, demand, cancelled, terminated
+        );
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.flow;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Subscriber side of {@link Flows#toGenerator(Flow.Publisher, int)}: items are buffered 
+ * in the bounded ring that is never overflown since the outstanding demand plus the 
+ * number of buffered items never exceeds the window. Demand is refilled in batches,
+ * once half of the window is consumed.
+ */
+final class SubscriberBuffer<T> implements Flow.Subscriber<T> {
+    private static final CompletableFuture<Void> ITEM_AVAILABLE = CompletableFuture.completedFuture(null);
+    
+    private final Object[] items;
+    private final int refillThreshold;
+    private int head;
+    private int count;
+    // Items consumed since the latest request
+    private int consumed;
+    
+    private Flow.Subscription subscription;
+    private boolean completed;
+    private boolean closed;
+    private Throwable error;
+    
+    private CompletableFuture<Void> itemAwait;
+    
+    SubscriberBuffer(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.items = new Object[window];
+        this.refillThreshold = Math.max(1, window / 2);
+    }
+    
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription, "Subscription must be non-null");
+        boolean accepted;
+        synchronized (this) {
+            // Rule 2.5
+            accepted = null == this.subscription && !closed;
+            if (accepted) {
+                this.subscription = subscription;
+            }
+        }
+        if (accepted) {
+            subscription.request(items.length);
+        } else {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public void onNext(T item) {
+        // Rule 2.13
+        Objects.requireNonNull(item, "Item must be non-null");
+        CompletableFuture<Void> pendingAwait;
+        Flow.Subscription overflown = null;
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            if (count == items.length) {
+                // Publisher doesn't respect demand
+                error = new IllegalStateException("Publisher emitted more items than requested");
+                completed = true;
+                overflown = subscription;
+            } else {
+                items[(head + count) % items.length] = item;
+                count++;
+            }
+            pendingAwait = itemAwait;
+            itemAwait = null;
+        }
+        if (null != overflown) {
+            overflown.cancel();
+        }
+        // Resume consumer outside of the lock
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // Rule 2.13
+        Objects.requireNonNull(throwable, "Error must be non-null");
+        complete(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        complete(null);
+    }
+    
+    private void complete(Throwable error) {
+        CompletableFuture<Void> pendingAwait;
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed  = true;
+            this.error = error;
+            pendingAwait = itemAwait;
+            itemAwait = null;
+        }
+        if (null != pendingAwait) {
+            pendingAwait.complete(null);
+        }
+    }
+    
+    /**
+     * Consumer side: resolved once there is an item to poll or the publisher is completed
+     */
+    synchronized CompletionStage<Void> whenItemAvailable() {
+        if (count > 0 || completed) {
+            return ITEM_AVAILABLE;
+        } else {
+            itemAwait = new CompletableFuture<>();
+            return itemAwait;
+        }
+    }
+    
+    /**
+     * @return next item or null if the publisher is completed
+     */
+    T poll() {
+        T result;
+        long refill;
+        Flow.Subscription currentSubscription;
+        synchronized (this) {
+            if (0 == count) {
+                if (null != error) {
+                    Throwable ex = error;
+                    // Report error only once
+                    error = null;
+                    return sneakyThrow(ex);
+                }
+                return null;
+            }
+            result = take();
+            refill = refillIfNecessary();
+            currentSubscription = subscription;
+        }
+        if (refill > 0) {
+            currentSubscription.request(refill);
+        }
+        return result;
+    }
+    
+    /**
+     * Moves buffered items, if any, to the list without waiting
+     */
+    void drainTo(List<? super CompletionStage<T>> target, int maxCount) {
+        long refill;
+        Flow.Subscription currentSubscription;
+        synchronized (this) {
+            for (int i = Math.min(count, maxCount); i > 0; i--) {
+                target.add(CompletableFuture.completedFuture(take()));
+            }
+            refill = refillIfNecessary();
+            currentSubscription = subscription;
+        }
+        if (refill > 0) {
+            currentSubscription.request(refill);
+        }
+    }
+    
+    void close() {
+        Flow.Subscription currentSubscription;
+        synchronized (this) {
+            closed = true;
+            completed = true;
+            error = null;
+            for (int i = 0; i < count; i++) {
+                items[(head + i) % items.length] = null;
+            }
+            count = 0;
+            currentSubscription = subscription;
+        }
+        if (null != currentSubscription) {
+            currentSubscription.cancel();
+        }
+    }
+    
+    private T take() {
+        @SuppressWarnings("unchecked")
+        T item = (T)items[head];
+        items[head] = null;
+        head = (head + 1) % items.length;
+        count--;
+        consumed++;
+        return item;
+    }
+    
+    private long refillIfNecessary() {
+        if (consumed < refillThreshold || completed) {
+            return 0;
+        }
+        long result = consumed;
+        consumed = 0;
+        return result;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "%s[window=%d, size=%d, completed=%s, closed=%s]", 
+            getClass().getSimpleName(), items.length, count, completed, closed
+        );
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T, E extends Throwable> T sneakyThrow(Throwable ex) throws E {
+        throw (E)ex;
+    }
+}
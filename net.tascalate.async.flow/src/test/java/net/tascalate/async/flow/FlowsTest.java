@@ -0,0 +1,417 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import net.tascalate.async.AsyncGenerator;
+import net.tascalate.async.Sequence;
+
+/**
+ * Checks the rules of the Reactive Streams specification that apply to the adapters, 
+ * in the spirit of the TCK. Signals are emitted synchronously here: publishers created by 
+ * {@link Flows#toPublisher(Sequence)} use the same-thread scheduler, and test publishers 
+ * emit from within {@link Flow.Subscription#request(long)}.
+ */
+public class FlowsTest {
+    
+    // ---- Flows.toPublisher
+    
+    @Test
+    public void elementsAreEmittedOnlyOnDemand() {
+        Source<String> source = Source.of("A", "B", "C");
+        Recorder<String> subscriber = new Recorder<>(0);
+        Flows.toPublisher(source).subscribe(subscriber);
+        assertEquals(0, source.advanced);
+        assertTrue(subscriber.items.isEmpty());
+        
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList("A", "B"), subscriber.items);
+        assertEquals("Source is advanced only on demand", 2, source.advanced);
+        assertEquals(0, subscriber.completions);
+        
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList("A", "B", "C"), subscriber.items);
+        assertEquals(1, subscriber.completions);
+        assertTrue(source.closed);
+        subscriber.assertNoError();
+    }
+    
+    @Test
+    public void unboundedDemandIsNotOverflown() {
+        // Rule 3.17
+        Source<String> source = Source.of("A", "B", "C");
+        Recorder<String> subscriber = new Recorder<>(1);
+        Flows.toPublisher(source).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList("A", "B", "C"), subscriber.items);
+        assertEquals(1, subscriber.completions);
+        subscriber.assertNoError();
+    }
+    
+    @Test
+    public void nonPositiveRequestIsSignalledAsError() {
+        // Rule 3.9
+        Source<String> source = Source.of("A", "B");
+        Recorder<String> subscriber = new Recorder<>(0);
+        Flows.toPublisher(source).subscribe(subscriber);
+        subscriber.subscription.request(-1);
+        assertTrue(subscriber.items.isEmpty());
+        assertEquals(1, subscriber.errors.size());
+        assertTrue(subscriber.errors.get(0) instanceof IllegalArgumentException);
+        assertEquals(0, subscriber.completions);
+        assertTrue(source.closed);
+    }
+    
+    @Test
+    public void cancellationStopsSignalsAndClosesSource() {
+        // Rules 1.8 and 3.13
+        Source<String> source = Source.of("A", "B", "C");
+        Recorder<String> subscriber = new Recorder<>(1);
+        Flows.toPublisher(source).subscribe(subscriber);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+        assertEquals(Arrays.asList("A"), subscriber.items);
+        assertEquals(0, subscriber.completions);
+        subscriber.assertNoError();
+        assertTrue(source.closed);
+        assertEquals(1, source.advanced);
+    }
+    
+    @Test
+    public void failedElementIsSignalledAsError() {
+        IllegalStateException failure = new IllegalStateException("Failed element");
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(failure);
+        Source<String> source = new Source<>(Arrays.asList(CompletableFuture.completedFuture("A"), failed));
+        Recorder<String> subscriber = new Recorder<>(Long.MAX_VALUE);
+        Flows.toPublisher(source).subscribe(subscriber);
+        assertEquals(Arrays.asList("A"), subscriber.items);
+        assertEquals(1, subscriber.errors.size());
+        assertSame(failure, rootCause(subscriber.errors.get(0)));
+        assertEquals(0, subscriber.completions);
+        assertTrue(source.closed);
+    }
+    
+    @Test
+    public void nullElementIsSignalledAsError() {
+        // Rule 2.13
+        Source<String> source = new Source<>(Arrays.asList(CompletableFuture.completedFuture(null)));
+        Recorder<String> subscriber = new Recorder<>(1);
+        Flows.toPublisher(source).subscribe(subscriber);
+        assertTrue(subscriber.items.isEmpty());
+        assertEquals(1, subscriber.errors.size());
+        assertTrue(subscriber.errors.get(0) instanceof NullPointerException);
+        assertTrue(source.closed);
+    }
+    
+    @Test
+    public void exceptionFromOnNextCancelsSubscription() {
+        // Rule 2.13: the error is not signalled back to the subscriber
+        Source<String> source = Source.of("A", "B", "C");
+        Recorder<String> subscriber = new Recorder<String>(Long.MAX_VALUE) {
+            @Override
+            public void onNext(String item) {
+                super.onNext(item);
+                throw new IllegalStateException("Subscriber failure");
+            }
+        };
+        Flows.toPublisher(source).subscribe(subscriber);
+        assertEquals(Arrays.asList("A"), subscriber.items);
+        subscriber.assertNoError();
+        assertEquals(0, subscriber.completions);
+        assertTrue(source.closed);
+        // Subscription is considered cancelled
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList("A"), subscriber.items);
+    }
+    
+    @Test
+    public void exceptionFromOnSubscribeClosesSource() {
+        // Rule 2.13
+        Source<String> source = Source.of("A");
+        Recorder<String> subscriber = new Recorder<String>(0) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                throw new IllegalStateException("Subscriber failure");
+            }
+        };
+        Flows.toPublisher(source).subscribe(subscriber);
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.items.isEmpty());
+        subscriber.assertNoError();
+        assertTrue(source.closed);
+    }
+    
+    @Test
+    public void onlySingleSubscriberIsAccepted() {
+        Flow.Publisher<String> publisher = Flows.toPublisher(Source.of("A"));
+        Recorder<String> first = new Recorder<>(0);
+        Recorder<String> second = new Recorder<>(0);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        // Rule 1.9: onSubscribe precedes any other signal
+        assertTrue(null != second.subscription);
+        assertEquals(1, second.errors.size());
+        assertTrue(second.errors.get(0) instanceof IllegalStateException);
+        
+        first.subscription.request(1);
+        assertEquals(Arrays.asList("A"), first.items);
+        first.assertNoError();
+    }
+    
+    @Test(expected = NullPointerException.class)
+    public void nullSubscriberIsRejected() {
+        // Rule 1.9
+        Flows.toPublisher(Source.of("A")).subscribe(null);
+    }
+    
+    // ---- Flows.toGenerator
+    
+    @Test
+    public void generatorRequestsWindowAndRefillsInBatches() {
+        RangePublisher publisher = new RangePublisher(10);
+        List<Integer> values = new ArrayList<>();
+        try (AsyncGenerator<Integer> generator = Flows.toGenerator(publisher, 4)) {
+            assertEquals(Arrays.asList(4L), publisher.requests);
+            CompletionStage<Integer> next;
+            while (null != (next = generator.next())) {
+                values.add(next.toCompletableFuture().join());
+            }
+        }
+        assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toList()), values);
+        assertEquals(Arrays.asList(4L, 2L, 2L, 2L), publisher.requests.subList(0, 4));
+        // Outstanding demand never exceeds the window
+        assertTrue(publisher.maxOutstanding <= 4);
+    }
+    
+    @Test
+    public void generatorReturnsBufferedBatchWithoutWaiting() {
+        RangePublisher publisher = new RangePublisher(10);
+        try (AsyncGenerator<Integer> generator = Flows.toGenerator(publisher, 8)) {
+            List<CompletionStage<Integer>> batch = generator.nextBatch(5);
+            assertEquals(5, batch.size());
+            assertEquals(Integer.valueOf(4), batch.get(4).toCompletableFuture().join());
+        }
+    }
+    
+    @Test
+    public void publisherErrorIsThrownByGenerator() {
+        IllegalStateException failure = new IllegalStateException("Publisher failure");
+        RangePublisher publisher = new RangePublisher(2);
+        publisher.failure = failure;
+        try (AsyncGenerator<Integer> generator = Flows.toGenerator(publisher, 4)) {
+            assertEquals(Integer.valueOf(0), generator.next().toCompletableFuture().join());
+            assertEquals(Integer.valueOf(1), generator.next().toCompletableFuture().join());
+            try {
+                generator.next();
+                fail("Publisher error must be thrown");
+            } catch (IllegalStateException ex) {
+                assertSame(failure, ex);
+            }
+        }
+    }
+    
+    @Test
+    public void closingGeneratorCancelsSubscription() {
+        RangePublisher publisher = new RangePublisher(10);
+        AsyncGenerator<Integer> generator = Flows.toGenerator(publisher, 4);
+        assertEquals(Integer.valueOf(0), generator.next().toCompletableFuture().join());
+        generator.close();
+        assertTrue(publisher.cancelled);
+        assertNull(generator.next());
+    }
+    
+    @Test
+    public void publisherIgnoringDemandIsReported() {
+        RangePublisher publisher = new RangePublisher(10);
+        publisher.extraItems = 1;
+        try (AsyncGenerator<Integer> generator = Flows.toGenerator(publisher, 2)) {
+            assertTrue(publisher.cancelled);
+            assertEquals(Integer.valueOf(0), generator.next().toCompletableFuture().join());
+            assertEquals(Integer.valueOf(1), generator.next().toCompletableFuture().join());
+            try {
+                generator.next();
+                fail("Overflow must be reported");
+            } catch (IllegalStateException ex) {
+                // Expected
+            }
+        }
+    }
+    
+    private static Throwable rootCause(Throwable error) {
+        while (null != error.getCause() && error.getCause() != error) {
+            error = error.getCause();
+        }
+        return error;
+    }
+    
+    static final class Source<T> implements Sequence<CompletionStage<T>> {
+        private final Iterator<? extends CompletionStage<T>> stages;
+        int advanced;
+        boolean closed;
+        
+        Source(List<? extends CompletionStage<T>> stages) {
+            this.stages = stages.iterator();
+        }
+        
+        @SafeVarargs
+        static <T> Source<T> of(T... values) {
+            return new Source<>(Arrays.stream(values).map(CompletableFuture::completedFuture).collect(Collectors.toList()));
+        }
+        
+        @Override
+        public CompletionStage<T> next() {
+            if (closed) {
+                throw new IllegalStateException("Source is closed");
+            }
+            if (!stages.hasNext()) {
+                return null;
+            }
+            advanced++;
+            return stages.next();
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+    
+    static class Recorder<T> implements Flow.Subscriber<T> {
+        private final long initialRequest;
+        
+        final List<T> items = new ArrayList<>();
+        final List<Throwable> errors = new ArrayList<>();
+        int completions;
+        Flow.Subscription subscription;
+        
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+        
+        @Override
+        public void onNext(T item) {
+            // Rule 1.7: no signals after the terminal one
+            assertTrue("onNext after terminal signal", errors.isEmpty() && 0 == completions);
+            items.add(item);
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            errors.add(throwable);
+        }
+        
+        @Override
+        public void onComplete() {
+            completions++;
+        }
+        
+        void assertNoError() {
+            assertTrue("Unexpected error: " + errors, errors.isEmpty());
+        }
+    }
+    
+    // Emits 0, 1, 2 ... synchronously on request
+    static final class RangePublisher implements Flow.Publisher<Integer> {
+        private final int count;
+        final List<Long> requests = new ArrayList<>();
+        Throwable failure;
+        int extraItems;
+        boolean cancelled;
+        long maxOutstanding;
+        
+        RangePublisher(int count) {
+            this.count = count;
+        }
+        
+        @Override
+        public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int next;
+                private long demand;
+                private boolean emitting;
+                private boolean done;
+                
+                @Override
+                public void request(long n) {
+                    requests.add(n);
+                    demand += n + extraItems;
+                    maxOutstanding = Math.max(maxOutstanding, demand);
+                    if (emitting) {
+                        // Rule 3.3: no recursion, emitted by the outer call
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < count && !cancelled) {
+                        demand--;
+                        subscriber.onNext(next++);
+                    }
+                    emitting = false;
+                    if (next == count && !cancelled && !done) {
+                        done = true;
+                        if (null == failure) {
+                            subscriber.onComplete();
+                        } else {
+                            subscriber.onError(failure);
+                        }
+                    }
+                }
+                
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
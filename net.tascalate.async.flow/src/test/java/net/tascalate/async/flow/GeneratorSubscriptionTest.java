@@ -0,0 +1,117 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import org.junit.Test;
+
+public class GeneratorSubscriptionTest {
+    
+    @Test
+    public void demandIsAccumulatedAndConsumed() {
+        GeneratorSubscription<String> subscription = new GeneratorSubscription<>(null);
+        CompletableFuture<Boolean> pending = subscription.whenDemanded().toCompletableFuture();
+        assertFalse("No demand yet", pending.isDone());
+        
+        subscription.request(2);
+        assertEquals(Boolean.TRUE, pending.getNow(null));
+        assertTrue(subscription.consume());
+        assertTrue(subscription.whenDemanded().toCompletableFuture().isDone());
+        assertTrue(subscription.consume());
+        assertFalse("Demand is exhausted", subscription.whenDemanded().toCompletableFuture().isDone());
+    }
+    
+    @Test
+    public void demandSaturatesAtLongMaxValue() {
+        // Rule 3.17
+        GeneratorSubscription<String> subscription = new GeneratorSubscription<>(null);
+        subscription.request(Long.MAX_VALUE - 1);
+        subscription.request(Long.MAX_VALUE);
+        subscription.request(10);
+        assertTrue(subscription.toString(), subscription.toString().contains("demand=" + Long.MAX_VALUE));
+        // Unbounded demand is never consumed
+        for (int i = 0; i < 100; i++) {
+            assertTrue(subscription.consume());
+        }
+        assertTrue(subscription.toString(), subscription.toString().contains("demand=" + Long.MAX_VALUE));
+    }
+    
+    @Test
+    public void nonPositiveRequestIsReportedOnce() {
+        // Rule 3.9
+        GeneratorSubscription<String> subscription = new GeneratorSubscription<>(null);
+        CompletableFuture<Boolean> pending = subscription.whenDemanded().toCompletableFuture();
+        subscription.request(0);
+        assertEquals("Emitting method is resumed to report the error", Boolean.TRUE, pending.getNow(null));
+        IllegalArgumentException error = subscription.invalidRequest();
+        assertNotNull(error);
+        subscription.request(-1);
+        assertEquals(error, subscription.invalidRequest());
+    }
+    
+    @Test
+    public void cancelResumesPendingAwait() {
+        GeneratorSubscription<String> subscription = new GeneratorSubscription<>(null);
+        CompletableFuture<Boolean> pending = subscription.whenDemanded().toCompletableFuture();
+        subscription.cancel();
+        assertEquals(Boolean.FALSE, pending.getNow(null));
+        assertEquals(Boolean.FALSE, subscription.whenDemanded().toCompletableFuture().getNow(null));
+        assertFalse(subscription.consume());
+        // Rule 3.5 and 3.6: no-ops after cancellation
+        subscription.cancel();
+        subscription.request(1);
+        assertNull(subscription.invalidRequest());
+        assertFalse(subscription.terminate());
+    }
+    
+    @Test
+    public void requestsAfterTerminationAreIgnored() {
+        // Rule 3.6
+        GeneratorSubscription<String> subscription = new GeneratorSubscription<>(null);
+        assertTrue(subscription.terminate());
+        subscription.request(0);
+        assertNull(subscription.invalidRequest());
+    }
+    
+    @Test
+    public void subscriptionIsReentrant() {
+        // Rule 3.3: the emitting method resumed by request() may request again synchronously
+        GeneratorSubscription<String> subscription = new GeneratorSubscription<>(null);
+        Flow.Subscription asSubscription = subscription;
+        CompletableFuture<Boolean> pending = subscription.whenDemanded().toCompletableFuture();
+        pending.thenRun(() -> asSubscription.request(1));
+        asSubscription.request(1);
+        assertTrue(subscription.consume());
+        assertTrue(subscription.consume());
+    }
+}
@@ -24,7 +24,9 @@
  */
 package net.tascalate.async.resolver.provided;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.SwitchPoint;
 
 import org.kohsuke.MetaInfServices;
 
@@ -35,6 +37,8 @@ import net.tascalate.async.spi.SchedulerResolver;
 @MetaInfServices
 public class GetSchedulerFromProvider implements SchedulerResolver {
     
+    private static final SwitchPoint NEVER_INVALIDATED = new SwitchPoint();
+    
     private final SchedulerProviderLookup lookup = new SchedulerProviderLookup(true, true, true, false);
 
     @Override
@@ -62,6 +66,37 @@ public class GetSchedulerFromProvider implements SchedulerResolver {
         }
     }
     
+    @Override
+    public SwitchPoint inactivityGuard(MethodHandles.Lookup ownerClassLookup, boolean isStatic) {
+        boolean noAccessor = 
+            (isStatic || null == lookup.getInstanceAccessor(ownerClassLookup)) && 
+            null == lookup.getClassAccessor(ownerClassLookup);
+        // Class has no providers at all
+        return noAccessor ? NEVER_INVALIDATED : null;
+    }
+    
+    @Override
+    public MethodHandle link(MethodHandles.Lookup ownerClassLookup, boolean isStatic) {
+        if (!isStatic) {
+            SchedulerProviderLookup.InstanceAccessor iAccessor = lookup.getInstanceAccessor(ownerClassLookup);
+            if (null != iAccessor) {
+                return iAccessor.asMethodHandle();
+            }
+        }
+        SchedulerProviderLookup.ClassAccessor cAccessor = lookup.getClassAccessor(ownerClassLookup);
+        if (null != cAccessor) {
+            return MethodHandles.dropArguments(cAccessor.asMethodHandle(), 0, Object.class);
+        } else {
+            return null;
+        }
+    }
+    
+    @Override
+    public void prepare(MethodHandles.Lookup ownerClassLookup) {
+        lookup.getInstanceAccessor(ownerClassLookup);
+        lookup.getClassAccessor(ownerClassLookup);
+    }
+    
     @Override
     public String toString() {
         return String.format("%s[priority=%d, lookup=%s]", getClass().getSimpleName(), priority(), lookup);
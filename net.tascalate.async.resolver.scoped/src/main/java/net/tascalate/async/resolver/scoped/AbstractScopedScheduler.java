@@ -25,6 +25,7 @@
 package net.tascalate.async.resolver.scoped;
 
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.SwitchPoint;
 
 import net.tascalate.async.Scheduler;
 import net.tascalate.async.spi.SchedulerResolver;
@@ -46,7 +47,12 @@ public class AbstractScopedScheduler implements SchedulerResolver {
 
     @Override
     public Scheduler resolve(Object owner, MethodHandles.Lookup ownerClassLookup) {
-        return scope.currentExecutor.get();
+        return scope.current();
+    }
+    
+    @Override
+    public SwitchPoint inactivityGuard(MethodHandles.Lookup ownerClassLookup, boolean isStatic) {
+        return scope.inactivityGuard();
     }
 
     @Override
@@ -24,7 +24,9 @@
  */
 package net.tascalate.async.resolver.scoped;
 
+import java.lang.invoke.SwitchPoint;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import net.tascalate.async.Scheduler;
@@ -32,7 +34,16 @@ import net.tascalate.async.Scheduler;
 public enum SchedulerScope {
     DEFAULTS, DEFAULTS_OVERRIDE, PROVIDER_OVERRIDE;
     
-    final ThreadLocal<Scheduler> currentExecutor = new ThreadLocal<>();
+    // Number of callWith-s in progress on all threads
+    private final AtomicInteger activeBindings = new AtomicInteger();
+    // Valid while the scope is not used, guarded by the lock; 
+    // created on demand when call sites are (re-)linked 
+    private final Object lock = new Object();
+    private volatile SwitchPoint unused;
+    
+    public Scheduler current() {
+        return ScopedSchedulers.get(this);
+    }
     
     public void runWith(Scheduler ctxExecutor, Runnable code) {
         supplyWith(ctxExecutor, () -> {
@@ -53,16 +64,46 @@ public enum SchedulerScope {
     
     
     public <V> V callWith(Scheduler ctxExecutor, Callable<V> code) throws Exception {
-        Scheduler previous = currentExecutor.get();
-        currentExecutor.set(ctxExecutor);
+        activeBindings.incrementAndGet();
+        if (null != unused) {
+            // Re-link call sites that skip this scope
+            synchronized (lock) {
+                invalidateUnused();
+            }
+        }
         try {
-            return code.call();
+            return ScopedSchedulers.callWith(this, ctxExecutor, code);
         } finally {
-            if (null == previous) {
-                currentExecutor.remove();
-            } else {
-                currentExecutor.set(previous);
+            activeBindings.decrementAndGet();
+        }
+    }
+    
+    /**
+     * @return guard that stays valid while the scope is not used or null if the scope 
+     * is used at the moment
+     */
+    SwitchPoint inactivityGuard() {
+        synchronized (lock) {
+            SwitchPoint result = unused;
+            if (null == result) {
+                result = new SwitchPoint();
+                unused = result;
+            }
+            // Checked after publication, so either this check sees the binding 
+            // or the callWith sees the guard
+            if (activeBindings.get() > 0) {
+                invalidateUnused();
+                return null;
             }
+            return result;
+        }
+    }
+    
+    private void invalidateUnused() {
+        SwitchPoint current = unused;
+        if (null != current) {
+            unused = null;
+            SwitchPoint.invalidateAll(new SwitchPoint[] {current});
         }
     }
 }
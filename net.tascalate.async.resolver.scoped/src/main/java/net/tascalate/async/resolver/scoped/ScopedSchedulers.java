@@ -0,0 +1,69 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.resolver.scoped;
+
+import java.util.concurrent.Callable;
+
+import net.tascalate.async.Scheduler;
+
+/**
+ * Storage of schedulers bound to all {@link SchedulerScope}-s of the current thread:
+ * single carrier with an immutable array indexed by the scope ordinal, so one thread-local 
+ * lookup serves any scope. On Java 25+ the multi-release version of this class 
+ * (src/main/java25) is used instead, it's backed by {@code ScopedValue}.
+ */
+final class ScopedSchedulers {
+    private static final Scheduler[] EMPTY = new Scheduler[SchedulerScope.values().length];
+    private static final ThreadLocal<Scheduler[]> CURRENT = new ThreadLocal<>();
+    
+    private ScopedSchedulers() {}
+    
+    static Scheduler get(SchedulerScope scope) {
+        Scheduler[] schedulers = CURRENT.get();
+        return null == schedulers ? null : schedulers[scope.ordinal()];
+    }
+    
+    static <V> V callWith(SchedulerScope scope, Scheduler scheduler, Callable<V> code) throws Exception {
+        Scheduler[] previous = CURRENT.get();
+        Scheduler[] source = null == previous ? EMPTY : previous;
+        int idx = scope.ordinal();
+        if (source[idx] == scheduler) {
+            // Nothing changed
+            return code.call();
+        }
+        Scheduler[] updated = source.clone();
+        updated[idx] = scheduler;
+        CURRENT.set(updated);
+        try {
+            return code.call();
+        } finally {
+            if (null == previous) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -27,13 +27,33 @@ package net.tascalate.async.resolver.swing;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import javax.swing.SwingUtilities;
 
 import net.tascalate.async.scheduler.AbstractScheduler;
 
+/**
+ * Scheduler that resumes async methods on the Swing Event Dispatch Thread.
+ * <p>
+ * Commands scheduled from other threads are collected into the queue and executed 
+ * in batches, one {@link SwingUtilities#invokeLater(Runnable)} event per batch. 
+ * Every batch is limited by the time budget, so the rest of commands are 
+ * re-posted to the event queue to let other UI events be processed. 
+ */
 public class SwingDispatcherThreadScheduler extends AbstractScheduler {
+    private static final long DEFAULT_PASS_TIME_BUDGET = TimeUnit.MILLISECONDS.toNanos(8);
+    
+    // Intrusive MPSC queue of pending commands: any thread appends at the tail,
+    // only EDT removes at the head; head is a (consumed) stub node
+    private final AtomicReference<ScheduledCommand> pendingTail;
+    private ScheduledCommand pendingHead;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final Runnable drainer = this::drainPendingCommands;
+    private final long passTimeBudget;
 
     public SwingDispatcherThreadScheduler() {
         this(null, null);
@@ -48,7 +68,19 @@ public class SwingDispatcherThreadScheduler extends AbstractScheduler {
     }
     
     public SwingDispatcherThreadScheduler(Set<Characteristics> characteristics, Function<? super Runnable, ? extends Runnable> contextualizer) {
+        this(characteristics, contextualizer, DEFAULT_PASS_TIME_BUDGET, TimeUnit.NANOSECONDS);
+    }
+    
+    public SwingDispatcherThreadScheduler(Set<Characteristics> characteristics, 
+                                          Function<? super Runnable, ? extends Runnable> contextualizer,
+                                          long passTimeBudget, TimeUnit timeUnit) {
         super(ensureNonInterruptibleCharacteristic(characteristics), contextualizer);
+        if (passTimeBudget <= 0) {
+            throw new IllegalArgumentException("Time budget must be positive: " + passTimeBudget);
+        }
+        this.passTimeBudget = timeUnit.toNanos(passTimeBudget);
+        this.pendingHead = new ScheduledCommand(null);
+        this.pendingTail = new AtomicReference<>(pendingHead);
     }
 
     @Override
@@ -57,22 +89,62 @@ public class SwingDispatcherThreadScheduler extends AbstractScheduler {
             command.run();
             return CompletableFuture.completedFuture(null);
         } else {
-            SchedulePromise<?> result = new SchedulePromise<>();
-            Runnable wrapper = new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        command.run();
-                        result.internalSuccess(null);
-                    } catch (final Throwable ex) {
-                        result.internalFailure(ex);
-                    }
-                }
-            };
-            SwingUtilities.invokeLater(wrapper);
+            ScheduledCommand result = new ScheduledCommand(command);
+            offer(result);
+            requestDrain();
             return result;
         }
     }
+    
+    private void requestDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(drainer);
+        }
+    }
+    
+    private void drainPendingCommands() {
+        long passStart = System.nanoTime();
+        ScheduledCommand command;
+        while (null != (command = poll())) {
+            command.run();
+            if (System.nanoTime() - passStart >= passTimeBudget) {
+                if (hasPending()) {
+                    // Give way to other events, drainScheduled remains set
+                    SwingUtilities.invokeLater(drainer);
+                    return;
+                }
+                break;
+            }
+        }
+        drainScheduled.set(false);
+        // Command may be offered after the last poll but before reset of the flag
+        if (hasPending()) {
+            requestDrain();
+        }
+    }
+    
+    private void offer(ScheduledCommand command) {
+        ScheduledCommand previous = pendingTail.getAndSet(command);
+        // Until linked the command is not visible to poll(), though hasPending() reports it already
+        previous.next = command;
+    }
+    
+    // EDT only
+    private ScheduledCommand poll() {
+        ScheduledCommand next = pendingHead.next;
+        if (null == next) {
+            return null;
+        }
+        // The polled node becomes a new stub
+        pendingHead.next = null;
+        pendingHead = next;
+        return next;
+    }
+    
+    // EDT only
+    private boolean hasPending() {
+        return pendingTail.get() != pendingHead;
+    }
 
     private static Set<Characteristics> ensureNonInterruptibleCharacteristic(Set<Characteristics> characteristics) {
         if (null == characteristics || !characteristics.contains(Characteristics.INTERRUPTIBLE)) {
@@ -81,7 +153,30 @@ public class SwingDispatcherThreadScheduler extends AbstractScheduler {
         throw new IllegalArgumentException("Characteristics must contains " + Characteristics.INTERRUPTIBLE);
     }
     
-    static final class SchedulePromise<T> extends CompletableFuture<T> {
+    // Both queue node and result promise -- single allocation per scheduled command
+    static final class ScheduledCommand extends SchedulePromise<Object> implements Runnable {
+        volatile ScheduledCommand next;
+        private Runnable command;
+        
+        ScheduledCommand(Runnable command) {
+            this.command = command;
+        }
+        
+        @Override
+        public void run() {
+            Runnable command = this.command;
+            // Executed node stays in the queue as a stub, so release the command
+            this.command = null;
+            try {
+                command.run();
+                internalSuccess(null);
+            } catch (final Throwable ex) {
+                internalFailure(ex);
+            }
+        }
+    }
+    
+    static class SchedulePromise<T> extends CompletableFuture<T> {
         SchedulePromise() {}
         
         protected boolean internalSuccess(T value) {
@@ -0,0 +1,195 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.resolver.swing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs without display: only {@link EventQueue} of the headless toolkit is used.
+ */
+public class SwingDispatcherThreadSchedulerTest {
+    
+    @BeforeClass
+    public static void setupHeadless() {
+        System.setProperty("java.awt.headless", "true");
+    }
+    
+    @Test
+    public void commandsFromManyThreadsRunOnEdtInSubmissionOrder() throws Exception {
+        SwingDispatcherThreadScheduler scheduler = new SwingDispatcherThreadScheduler();
+        int producers = 4;
+        int commandsPerProducer = 20000;
+        // Accessed on EDT only
+        List<List<Integer>> executed = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            executed.add(new ArrayList<>());
+        }
+        AtomicInteger offEdt = new AtomicInteger();
+        
+        List<CompletableFuture<?>> results = new ArrayList<>();
+        Thread[] threads = new Thread[producers];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < producers; i++) {
+            int producer = i;
+            CompletableFuture<?>[] producerResults = new CompletableFuture<?>[commandsPerProducer];
+            threads[i] = new Thread(() -> {
+                await(start);
+                for (int j = 0; j < commandsPerProducer; j++) {
+                    int value = j;
+                    producerResults[j] = scheduler.schedule(() -> {
+                        if (!EventQueue.isDispatchThread()) {
+                            offEdt.incrementAndGet();
+                        }
+                        executed.get(producer).add(value);
+                    }).toCompletableFuture();
+                }
+            });
+            threads[i].start();
+            results.add(CompletableFuture.runAsync(() -> {
+                join(threads[producer]);
+                CompletableFuture.allOf(producerResults).join();
+            }));
+        }
+        start.countDown();
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        
+        EventQueue.invokeAndWait(() -> {
+            for (List<Integer> values : executed) {
+                assertEquals(commandsPerProducer, values.size());
+                for (int j = 0; j < commandsPerProducer; j++) {
+                    assertEquals(j, values.get(j).intValue());
+                }
+            }
+        });
+        assertEquals(0, offEdt.get());
+    }
+    
+    @Test
+    public void exhaustedTimeBudgetGivesWayToOtherEvents() throws Exception {
+        SwingDispatcherThreadScheduler scheduler = new SwingDispatcherThreadScheduler(
+            null, null, 5, TimeUnit.MILLISECONDS
+        );
+        int commands = 20;
+        AtomicInteger executed = new AtomicInteger();
+        CountDownLatch edtBlocked = new CountDownLatch(1);
+        CountDownLatch releaseEdt = new CountDownLatch(1);
+        CompletableFuture<Integer> executedBeforeOtherEvent = new CompletableFuture<>();
+        
+        // Hold EDT so all commands are queued before the first pass
+        EventQueue.invokeLater(() -> {
+            edtBlocked.countDown();
+            await(releaseEdt);
+        });
+        edtBlocked.await();
+        List<CompletableFuture<?>> results = new ArrayList<>();
+        results.add(scheduler.schedule(() -> sleepAndCount(executed)).toCompletableFuture());
+        // Posted after the drain event of the scheduler
+        EventQueue.invokeLater(() -> executedBeforeOtherEvent.complete(executed.get()));
+        for (int i = 1; i < commands; i++) {
+            results.add(scheduler.schedule(() -> sleepAndCount(executed)).toCompletableFuture());
+        }
+        releaseEdt.countDown();
+        
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        int beforeOtherEvent = executedBeforeOtherEvent.get(30, TimeUnit.SECONDS);
+        assertTrue("At least one command per pass: " + beforeOtherEvent, beforeOtherEvent > 0);
+        assertTrue("Pass is limited by the time budget: " + beforeOtherEvent, beforeOtherEvent < commands);
+        assertEquals(commands, executed.get());
+    }
+    
+    @Test
+    public void failedCommandDoesNotStopQueue() throws Exception {
+        SwingDispatcherThreadScheduler scheduler = new SwingDispatcherThreadScheduler();
+        CompletionStage<?> failed = scheduler.schedule(() -> {
+            throw new IllegalStateException("failed");
+        });
+        AtomicInteger executed = new AtomicInteger();
+        CompletionStage<?> next = scheduler.schedule(executed::incrementAndGet);
+        
+        next.toCompletableFuture().get(30, TimeUnit.SECONDS);
+        assertEquals(1, executed.get());
+        try {
+            failed.toCompletableFuture().join();
+            assertTrue("Must fail", false);
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+    
+    @Test
+    public void commandScheduledOnEdtRunsInline() throws Exception {
+        SwingDispatcherThreadScheduler scheduler = new SwingDispatcherThreadScheduler();
+        CompletableFuture<Boolean> completedInline = new CompletableFuture<>();
+        EventQueue.invokeAndWait(() -> {
+            AtomicInteger executed = new AtomicInteger();
+            CompletionStage<?> result = scheduler.schedule(executed::incrementAndGet);
+            completedInline.complete(executed.get() == 1 && result.toCompletableFuture().isDone());
+        });
+        assertTrue(completedInline.get());
+        assertFalse(EventQueue.isDispatchThread());
+    }
+    
+    private static void sleepAndCount(AtomicInteger executed) {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        executed.incrementAndGet();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
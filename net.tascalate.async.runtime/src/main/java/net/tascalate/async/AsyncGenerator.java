@@ -70,7 +70,7 @@ public interface AsyncGenerator<T> extends InteractiveSequence<CompletionStage<T
     }
 
     public static <T> Sequence<CompletionStage<T>> from(T readyValue) {
-        return from(Stream.of(readyValue));
+        return Sequence.of(CompletableFuture.completedFuture(readyValue));
     }
     
     @SafeVarargs
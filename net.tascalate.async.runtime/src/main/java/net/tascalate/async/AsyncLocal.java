@@ -0,0 +1,89 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async;
+
+import java.util.function.Supplier;
+
+import net.tascalate.async.core.InternalCallContext;
+
+/**
+ * Variable that is local to the logical flow of {@link async} method rather than to the thread:
+ * the value is stored with the running async method, so it follows the method across 
+ * threads it is resumed on without any per-resume capture / restore (unlike {@link ContextVar} 
+ * relays). Nested async methods inherit values of the calling async method at the moment of call; 
+ * later changes are visible only to the async method that made them.
+ *
+ * @param <T> type of the value
+ */
+public class AsyncLocal<T> {
+    private final Supplier<? extends T> initialValue;
+    
+    public AsyncLocal() {
+        this(() -> null);
+    }
+    
+    public AsyncLocal(Supplier<? extends T> initialValue) {
+        this.initialValue = initialValue;
+    }
+    
+    public static <T> AsyncLocal<T> withInitial(Supplier<? extends T> initialValue) {
+        return new AsyncLocal<>(initialValue);
+    }
+    
+    /**
+     * Value of this variable in the current {@link async} method
+     * @return the current value or the initial value if none was set; the initial value
+     * is created once and then stored with the current {@link async} method like a value set explicitly
+     * @throws InvalidCallContextException if called outside of {@link async} method
+     */
+    public T get() throws InvalidCallContextException {
+        @SuppressWarnings("unchecked")
+        T result = (T)InternalCallContext.getAsyncLocal(this);
+        if (null == result) {
+            result = initialValue.get();
+            if (null != result) {
+                InternalCallContext.setAsyncLocal(this, result);
+            }
+        }
+        return result;
+    }
+    
+    public void set(T value) throws InvalidCallContextException {
+        if (null == value) {
+            remove();
+        } else {
+            InternalCallContext.setAsyncLocal(this, value);
+        }
+    }
+    
+    public void remove() throws InvalidCallContextException {
+        InternalCallContext.setAsyncLocal(this, null);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s@%x", getClass().getSimpleName(), System.identityHashCode(this));
+    }
+}
@@ -49,6 +49,40 @@ public class CallContext {
         return AsyncMethodExecutor.await(future);
     }
     
+    /**
+     * Wait for the {@link CompletionStage} within {@link async} method
+     * and resume according to the {@link ResumePolicy} specified.
+     * 
+     * The policy is applied to this call only, subsequent awaits
+     * are resumed via the {@link Scheduler} of the {@link async} method 
+     * unless the policy is specified explicitly again.
+     */
+    public @suspendable static <T> T await(CompletionStage<T> future, ResumePolicy resumePolicy) throws CancellationException, InvalidCallContextException {
+        return AsyncMethodExecutor.await(future, resumePolicy);
+    }
+    
+    /**
+     * Give up the current thread within {@link async} method.
+     * 
+     * The {@link async} method is suspended and immediately re-scheduled 
+     * via its {@link Scheduler}, so other continuations waiting for 
+     * the same {@link Scheduler} get a chance to run.
+     */
+    public @suspendable static void yieldNow() throws InvalidCallContextException {
+        AsyncMethodExecutor.yieldNow();
+    }
+
+    /**
+     * Give up the current thread within {@link async} method once the budget is exhausted,
+     * i.e. after the specified number of calls or when the time slice in microseconds is over
+     * (counting since the method was last resumed). Non-positive values disable corresponding limit.
+     * 
+     * @return true if the method was actually re-scheduled
+     */
+    public @suspendable static boolean yieldAfter(int maxIterations, long maxMicros) throws InvalidCallContextException {
+        return AsyncMethodExecutor.yieldAfter(maxIterations, maxMicros);
+    }
+    
     public static boolean interrupted() throws InvalidCallContextException {
         // Implementation is used only in @suspendable methods
         // @async methods get this call replaced with optimized 
@@ -76,6 +110,42 @@ public class CallContext {
         throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
     }
 
+    public static IntAsyncGenerator yieldInt() {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+    
+    public static void yieldInt(int value) throws InvalidCallContextException {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+    
+    public static void yieldInt(int[] values) throws InvalidCallContextException {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+
+    public static LongAsyncGenerator yieldLong() {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+    
+    public static void yieldLong(long value) throws InvalidCallContextException {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+    
+    public static void yieldLong(long[] values) throws InvalidCallContextException {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+
+    public static DoubleAsyncGenerator yieldDouble() {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+    
+    public static void yieldDouble(double value) throws InvalidCallContextException {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+    
+    public static void yieldDouble(double[] values) throws InvalidCallContextException {
+        throw new IllegalStateException("Method call must be replaced by bytecode enhancer");
+    }
+
     public static <E1 extends Throwable> void throwing(Class<E1> e1) throws E1 {}
     public static <E1 extends Throwable, 
                    E2 extends Throwable> void throwing(Class<E1> e1, Class<E2> e2) throws E1, E2 {}
@@ -100,4 +170,13 @@ public class CallContext {
             }
         };
     }
+    
+    public static <T> SuspendableFunction<CompletionStage<T>, T> awaitValue(ResumePolicy resumePolicy) {
+        return new SuspendableFunction<CompletionStage<T>, T>() {
+            @Override
+            public T apply(CompletionStage<T> future) {
+                return AsyncMethodExecutor.await(future, resumePolicy);
+            }
+        };
+    }
 }
@@ -84,29 +84,16 @@ public interface ContextVar<T> {
         };
     }
 
+    /**
+     * Exposes the {@link ThreadLocal} as a context variable; variables created for the same 
+     * thread-local are equal.
+     * @param <T> type of the value
+     * @param tl thread-local to expose
+     * @return the context variable
+     */
     public static <T> ContextVar<T> from(ThreadLocal<T> tl) {
-        return new ContextVar<T>() {
-            @Override
-            public T get() { 
-                return tl.get();
-            }
-
-            @Override
-            public void set(T value) {
-                tl.set(value);
-            }
-
-            @Override
-            public void remove() {
-                tl.remove();
-            }
-            
-            @Override
-            public String toString() {
-                return String.format("<thread-local-ctx-var>[%s]", tl);
-            }
-        };
-    }    
+        return new ThreadLocalContextVar<>(tl);
+    }
     
     
     public static Function<Runnable, Runnable> relay(ContextVar<?> contextVar) {
@@ -125,6 +112,25 @@ public interface ContextVar<T> {
         return ContextualRunnable.relayContextVars(Arrays.stream(threadLocals).map(ContextVar::from).collect(Collectors.toList()));
     }
 
+    /**
+     * Combines contextualizers into one; relays of context variables are merged, so the 
+     * resumed code captures and restores all variables once, regardless of how many relays
+     * were combined. Contextualizers are applied in the order specified: adjacent relays are merged
+     * in place, and a variable relayed by several of them is captured once, by the first one.
+     * @param contextualizers contextualizers to combine, typically results of relay(...) methods
+     * @return the combined contextualizer
+     */
+    @SafeVarargs
+    public static Function<Runnable, Runnable> compose(Function<? super Runnable, ? extends Runnable>... contextualizers) {
+        return compose(Arrays.asList(contextualizers));
+    }
+    
+    public static Function<Runnable, Runnable> compose(List<? extends Function<? super Runnable, ? extends Runnable>> contextualizers) {
+        return ContextualRunnable.composeContextualizers(
+            contextualizers == null ? Collections.emptyList() : contextualizers
+        );
+    }
+
     public static Function<Runnable, Runnable> relay1(List<? extends ContextVar<?>> contextVars) {
         return ContextualRunnable.relayContextVars(
             contextVars == null ? Collections.emptyList() : new ArrayList<>(contextVars)
@@ -24,70 +24,144 @@
  */
 package net.tascalate.async;
 
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 final class ContextualRunnable implements Runnable {
+    private static final ContextVar<?>[] NO_VARS = new ContextVar<?>[0];
+    
     private final Runnable delegate;
-    private final List<? extends ContextVar<?>> contextVars;
+    private final ContextVar<Object>[] contextVars;
     
-    private List<Object> capturedContext;
+    private Object[] capturedContext;
     
-    ContextualRunnable(Runnable delegate, List<? extends ContextVar<?>> contextVars) {
+    ContextualRunnable(Runnable delegate, ContextVar<Object>[] contextVars) {
         this.delegate = delegate;
-        this.contextVars = null == contextVars ? 
-            Collections.emptyList() : 
-            Collections.unmodifiableList(contextVars);
+        this.contextVars = contextVars;
     }
     
     ContextualRunnable captureCurrentContext() {
-        capturedContext = captureContextVars();
+        ContextVar<Object>[] vars = contextVars;
+        Object[] values = new Object[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            values[i] = vars[i].get();
+        }
+        capturedContext = values;
         return this;
     }
 
     @Override
     public void run() {
-        List<Object> originalContext = captureContextVars(); 
-        restoreContextVars(capturedContext);
+        ContextVar<Object>[] vars = contextVars;
+        Object[] captured = capturedContext;
+        Object[] original = new Object[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            Object current = vars[i].get();
+            original[i] = current;
+            if (current != captured[i]) {
+                apply(vars[i], captured[i]);
+            }
+        }
         try {
             delegate.run();
         } finally {
-            restoreContextVars(originalContext);
+            for (int i = 0; i < vars.length; i++) {
+                if (vars[i].get() != original[i]) {
+                    apply(vars[i], original[i]);
+                }
+            }
         }
     }
     
     @Override
     public String toString() {
-        return String.format("%s[contexVars={%s}, capturedContext={%s}]", getClass().getSimpleName(), contextVars, capturedContext);
+        return String.format("%s[contexVars={%s}, capturedContext={%s}]", 
+                             getClass().getSimpleName(), Arrays.toString(contextVars), Arrays.toString(capturedContext));
     }
     
     static Function<Runnable, Runnable> relayContextVars(List<? extends ContextVar<?>> contextVars) {
         if (null == contextVars || contextVars.isEmpty()) {
             return Function.identity();
         }
-        return r -> new ContextualRunnable(r, contextVars).captureCurrentContext();
+        return new Relay(toArray(contextVars));
     }
     
-    private List<Object> captureContextVars() {
-        return contextVars.stream().map(v -> v.get()).collect(Collectors.toList());
+    /**
+     * Composes contextualizers preserving their order, the first one is applied first (innermost). 
+     * Adjacent relays of {@link ContextVar}-s are merged into the single one, so the resumed code 
+     * is wrapped with single {@link ContextualRunnable} that captures and restores their variables 
+     * at once. Variable relayed several times is kept only in the first relay.
+     */
+    static Function<Runnable, Runnable> composeContextualizers(List<? extends Function<? super Runnable, ? extends Runnable>> contextualizers) {
+        Set<ContextVar<Object>> relayed = new HashSet<>();
+        List<ContextVar<Object>> adjacentVars = new ArrayList<>();
+        List<Function<Runnable, Runnable>> stages = new ArrayList<>();
+        for (Function<? super Runnable, ? extends Runnable> contextualizer : contextualizers) {
+            if (contextualizer instanceof Relay) {
+                for (ContextVar<Object> contextVar : ((Relay)contextualizer).contextVars) {
+                    if (relayed.add(contextVar)) {
+                        adjacentVars.add(contextVar);
+                    }
+                }
+            } else if (null != contextualizer && (Object)contextualizer != Function.identity()) {
+                addRelay(stages, adjacentVars);
+                stages.add(r -> contextualizer.apply(r));
+            }
+        }
+        addRelay(stages, adjacentVars);
+        
+        if (stages.isEmpty()) {
+            return Function.identity();
+        }
+        Function<Runnable, Runnable> result = stages.get(0);
+        for (Function<Runnable, Runnable> stage : stages.subList(1, stages.size())) {
+            Function<Runnable, Runnable> previous = result;
+            result = r -> stage.apply(previous.apply(r));
+        }
+        return result;
     }
     
-    private void restoreContextVars(List<Object> contextState) {
-        Iterator<? extends ContextVar<?>> vars = contextVars.iterator();
-        Iterator<Object> values = contextState.iterator();
-        while (vars.hasNext() && values.hasNext()) {
-            @SuppressWarnings("unchecked")
-            ContextVar<Object> contextVar = (ContextVar<Object>)vars.next();
-            Object contextVal = values.next();
-            if (null == contextVal) {
-                contextVar.remove();
-            } else {
-                contextVar.set(contextVal);
-            }
+    private static void addRelay(List<Function<Runnable, Runnable>> stages, List<ContextVar<Object>> contextVars) {
+        if (!contextVars.isEmpty()) {
+            stages.add(new Relay(toArray(contextVars)));
+            contextVars.clear();
+        }
+    }
+    
+    private static void apply(ContextVar<Object> contextVar, Object contextVal) {
+        if (null == contextVal) {
+            contextVar.remove();
+        } else {
+            contextVar.set(contextVal);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static ContextVar<Object>[] toArray(List<? extends ContextVar<?>> contextVars) {
+        return (ContextVar<Object>[])(null == contextVars ? NO_VARS : contextVars.toArray(NO_VARS));
+    }
+    
+    static final class Relay implements Function<Runnable, Runnable> {
+        // Shared by all runnables produced
+        final ContextVar<Object>[] contextVars;
+        
+        Relay(ContextVar<Object>[] contextVars) {
+            this.contextVars = contextVars;
+        }
+        
+        @Override
+        public Runnable apply(Runnable runnable) {
+            return new ContextualRunnable(runnable, contextVars).captureCurrentContext();
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s[contexVars={%s}]", getClass().getSimpleName(), Arrays.toString(contextVars));
         }
     }
     
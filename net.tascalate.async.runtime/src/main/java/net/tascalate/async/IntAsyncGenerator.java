@@ -0,0 +1,67 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async;
+
+/**
+ * Generator of {@code int} values, produced by {@link async} methods that
+ * call {@link CallContext#yieldInt(int)}. Values are handed over from the 
+ * producer to the consumer without boxing and without a per-element future.
+ * The async method returns {@link CallContext#yieldInt()} like the regular generator
+ * returns {@link CallContext#yield()}.
+ */
+public interface IntAsyncGenerator extends AutoCloseable {
+    /**
+     * Checks whether the generator has more values, may resume the producer
+     * and suspend till the next value is yielded
+     * @return true if the next value is available
+     */
+    @suspendable boolean hasNext();
+    
+    /**
+     * Returns the next value, may resume the producer and suspend till the value is yielded
+     * @return the next value
+     * @throws java.util.NoSuchElementException if the generator is over
+     */
+    @suspendable int nextInt();
+    
+    default @suspendable int nextBatch(int[] buffer) {
+        return nextBatch(buffer, 0, buffer.length);
+    }
+    
+    /**
+     * Fills the buffer with the next values. The producer writes values directly 
+     * into the buffer and is suspended once it's full, when the generator is over or 
+     * when it's about to await pending result with some values written: the call waits 
+     * only for the first value. Values that are already available are returned without 
+     * resuming the producer.
+     * @param buffer the array to fill
+     * @param offset the start position in the buffer
+     * @param length the maximum number of values to read, must be positive
+     * @return the number of values read, or 0 if the generator is over
+     */
+    @suspendable int nextBatch(int[] buffer, int offset, int length);
+    
+    void close();
+}
@@ -0,0 +1,87 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async;
+
+import java.util.Objects;
+
+/**
+ * Defines how an {@link async} method is resumed after a single
+ * {@link CallContext#await(java.util.concurrent.CompletionStage, ResumePolicy)} call.
+ */
+public final class ResumePolicy {
+    private static final ResumePolicy INLINE = new ResumePolicy(null, true);
+    private static final ResumePolicy DEFAULT_SCHEDULER = new ResumePolicy(null, false);
+
+    private final Scheduler scheduler;
+    private final boolean inline;
+
+    private ResumePolicy(Scheduler scheduler, boolean inline) {
+        this.scheduler = scheduler;
+        this.inline    = inline;
+    }
+
+    /**
+     * Resume on the thread that completes awaited {@link java.util.concurrent.CompletionStage}.
+     * Neither {@link Scheduler#schedule(Runnable)} nor {@link Scheduler#contextualize(Runnable)}
+     * are invoked, so context variables are not relayed for the resumed code.
+     */
+    public static ResumePolicy inline() {
+        return INLINE;
+    }
+
+    /**
+     * Resume via the {@link Scheduler} of the current {@link async} method,
+     * i.e. the same as {@link CallContext#await(java.util.concurrent.CompletionStage)}
+     */
+    public static ResumePolicy defaultScheduler() {
+        return DEFAULT_SCHEDULER;
+    }
+
+    /**
+     * Resume via the {@link Scheduler} supplied; used for the single await only.
+     */
+    public static ResumePolicy scheduler(Scheduler scheduler) {
+        return new ResumePolicy(Objects.requireNonNull(scheduler, "Scheduler must be specified"), false);
+    }
+
+    public boolean isInline() {
+        return inline;
+    }
+
+    public Scheduler effectiveScheduler(Scheduler defaultScheduler) {
+        return null != scheduler ? scheduler : defaultScheduler;
+    }
+
+    @Override
+    public String toString() {
+        if (inline) {
+            return "<inline-resume-policy>";
+        } else if (null == scheduler) {
+            return "<default-scheduler-resume-policy>";
+        } else {
+            return String.format("%s[scheduler=%s]", getClass().getSimpleName(), scheduler);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Global registry of named {@link Scheduler}-s referenced by {@link async#scheduler()}
+ * and {@link NamedScheduler}. The named scheduler takes part in the regular resolution 
+ * with the {@link #RESOLUTION_PRIORITY}: it's used before the 
+ * {@link net.tascalate.async.SchedulerProvider}-s of the class, but scoped overrides 
+ * of higher priority still win. Methods bound to the name that has no registered scheduler 
+ * resolve the scheduler as usual.
+ */
+public final class SchedulerRegistry {
+    /**
+     * Priority of the named scheduler among {@link net.tascalate.async.spi.SchedulerResolver}-s;
+     * the named scheduler is checked before any resolver of the same priority.
+     */
+    public static final int RESOLUTION_PRIORITY = 500;
+    
+    private static final ConcurrentMap<String, Binding> BINDINGS = new ConcurrentHashMap<>();
+    
+    private SchedulerRegistry() {}
+    
+    /**
+     * Registers the scheduler under the name given
+     * @param name name of the scheduler
+     * @param scheduler scheduler to register
+     * @return the scheduler previously registered under the same name or null
+     */
+    public static Scheduler register(String name, Scheduler scheduler) {
+        Objects.requireNonNull(scheduler, "Scheduler must be specified");
+        return binding(name).exchange(scheduler);
+    }
+    
+    /**
+     * Removes the scheduler registered under the name given
+     * @param name name of the scheduler
+     * @return the scheduler previously registered under the name or null
+     */
+    public static Scheduler unregister(String name) {
+        Binding binding = BINDINGS.get(Objects.requireNonNull(name, "Name must be specified"));
+        return null == binding ? null : binding.exchange(null);
+    }
+    
+    public static Scheduler lookup(String name) {
+        Binding binding = BINDINGS.get(Objects.requireNonNull(name, "Name must be specified"));
+        return null == binding ? null : binding.get();
+    }
+    
+    /**
+     * Live binding to the name given: the supplier returns the scheduler currently 
+     * registered under the name or null. Bindings are never removed, so the result 
+     * may be cached to avoid lookups by name.
+     * @param name name of the scheduler
+     * @return the binding
+     */
+    public static Supplier<Scheduler> bind(String name) {
+        return binding(name);
+    }
+    
+    private static Binding binding(String name) {
+        return BINDINGS.computeIfAbsent(Objects.requireNonNull(name, "Name must be specified"), Binding::new);
+    }
+    
+    static final class Binding implements Supplier<Scheduler> {
+        private final String name;
+        private volatile Scheduler scheduler;
+        
+        Binding(String name) {
+            this.name = name;
+        }
+        
+        @Override
+        public Scheduler get() {
+            return scheduler;
+        }
+        
+        synchronized Scheduler exchange(Scheduler newScheduler) {
+            Scheduler result = scheduler;
+            scheduler = newScheduler;
+            return result;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s[name=%s, scheduler=%s]", getClass().getSimpleName(), name, scheduler);
+        }
+    }
+}
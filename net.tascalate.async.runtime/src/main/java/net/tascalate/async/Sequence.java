@@ -24,6 +24,8 @@
  */
 package net.tascalate.async;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.function.Function;
 
@@ -41,6 +43,21 @@ import net.tascalate.javaflow.SuspendableStream;
 public interface Sequence<T> extends AutoCloseable {
     @suspendable T next();
     
+    /**
+     * Returns up to maxCount next elements. The call may suspend only while waiting for 
+     * the first element, the rest are elements that are available without waiting. 
+     * The default implementation returns single element.
+     * @param maxCount maximum number of elements to return
+     * @return next elements, or empty list if the sequence is over
+     */
+    default @suspendable List<T> nextBatch(int maxCount) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("Max count must be positive: " + maxCount);
+        }
+        T result = next();
+        return null == result ? Collections.emptyList() : Collections.singletonList(result);
+    }
+    
     void close();
     
     default <D> D as(Function<? super Sequence<T>, ? extends D> decoratorFactory) {
@@ -112,7 +129,7 @@ public interface Sequence<T> extends AutoCloseable {
     }
     
     public static <T> Sequence<T> of(T value) {
-        return of(Stream.of(value));
+        return of(Collections.singleton(value));
     }
     
     @SafeVarargs
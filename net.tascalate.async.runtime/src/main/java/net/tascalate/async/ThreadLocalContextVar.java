@@ -0,0 +1,70 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async;
+
+import java.util.Objects;
+
+/**
+ * {@link ContextVar} over the {@link ThreadLocal}; variables of the same thread-local are equal, 
+ * so relays of the same thread-local created separately are merged when composed.
+ */
+final class ThreadLocalContextVar<T> implements ContextVar<T> {
+    private final ThreadLocal<T> threadLocal;
+    
+    ThreadLocalContextVar(ThreadLocal<T> threadLocal) {
+        this.threadLocal = Objects.requireNonNull(threadLocal, "ThreadLocal must be specified");
+    }
+    
+    @Override
+    public T get() { 
+        return threadLocal.get();
+    }
+
+    @Override
+    public void set(T value) {
+        threadLocal.set(value);
+    }
+
+    @Override
+    public void remove() {
+        threadLocal.remove();
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        return this == other || 
+               other instanceof ThreadLocalContextVar && ((ThreadLocalContextVar<?>)other).threadLocal == threadLocal;
+    }
+    
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(threadLocal);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("<thread-local-ctx-var>[%s]", threadLocal);
+    }
+}
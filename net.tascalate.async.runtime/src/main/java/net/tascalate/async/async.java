@@ -34,5 +34,11 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.CLASS)
 @Target(ElementType.METHOD)
 public @interface async {
-
+    /**
+     * Name of the {@link Scheduler} registered in {@link SchedulerRegistry} to run the method with;
+     * when empty then the name specified by the {@link NamedScheduler} of the declaring class is used 
+     * (if any), otherwise the scheduler is resolved as usual. The named scheduler is resolved
+     * with {@link SchedulerRegistry#RESOLUTION_PRIORITY}, so scoped overrides of higher priority win.
+     */
+    String scheduler() default "";
 }
@@ -27,6 +27,7 @@ package net.tascalate.async.core;
 import java.lang.reflect.Method;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
@@ -35,6 +36,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import net.tascalate.async.AsyncValue;
+import net.tascalate.async.ResumePolicy;
 import net.tascalate.async.Scheduler;
 import net.tascalate.async.suspendable;
 
@@ -44,6 +46,8 @@ abstract public class AbstractAsyncMethod implements Runnable {
         INITIAL, RUNNING, COMPLETED
     }
     
+    private static final int MAX_PREEMPTION_SAMPLING_INTERVAL = 64;
+    
     public final CompletableFuture<?> future;
     
     private final Scheduler scheduler;
@@ -52,16 +56,28 @@ abstract public class AbstractAsyncMethod implements Runnable {
     
     private volatile CompletionStage<?> originalAwait;
     private volatile CompletableFuture<?> terminateMethod;
+    private volatile Handoff<?> awaitHandoff;
+    
+    // Accessed only by the thread that currently runs the continuation
+    private int yieldIterations;
+    private long yieldSliceStart;
+    private int preemptionCountdown;
+    private int preemptionInterval;
+    private long preemptionLastSample;
+    private AsyncLocals asyncLocals;
     
     protected AbstractAsyncMethod(Scheduler scheduler) {
         this.future = new ResultPromise<>();
         this.scheduler = scheduler != null ? scheduler : Scheduler.sameThreadContextless();
+        this.asyncLocals = inheritedAsyncLocals();
     }
 
     public final @suspendable void run() {
         if (!state.compareAndSet(State.INITIAL, State.RUNNING)) {
             throw new IllegalStateException(getClass().getName() + " should be in INITIAL state");
         }
+        // First time slice starts with the method body
+        resetYieldBudget();
         try {
             internalRun();
         } finally {
@@ -73,6 +89,14 @@ abstract public class AbstractAsyncMethod implements Runnable {
     
     abstract protected @suspendable void internalRun();
 
+    /**
+     * Invoked when the method is about to suspend on the pending future
+     * @return true if the method was suspended meanwhile
+     */
+    @suspendable boolean beforeAwait() {
+        return false;
+    }
+    
     final boolean isRunning() {
         return state.get() == State.RUNNING;
     }
@@ -81,6 +105,27 @@ abstract public class AbstractAsyncMethod implements Runnable {
         return future.isCancelled();
     }
 
+    // Used by generators to check whether the producer is over
+    final boolean checkDone() {
+        if (future.isDone()) {
+            // If we have synchronous error in generator method
+            // (as opposed to asynchronous that is managed by consumerLock
+            if (!future.isCancelled() && future.isCompletedExceptionally()) {
+                try {
+                    future.join();
+                } catch (final CancellationException ex) {
+                    // Should not happen -- completed exceptionally already checked
+                    throw new IllegalStateException(ex);
+                } catch (final CompletionException ex) {
+                    Exceptions.sneakyThrow(Exceptions.unrollCompletionException(ex));
+                }
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected final <T> boolean success(T value) {
         return ((ResultPromise<T>)future).internalSuccess(value);
@@ -98,6 +143,14 @@ abstract public class AbstractAsyncMethod implements Runnable {
         return scheduler;
     }
     
+    final AsyncLocals asyncLocals() {
+        return asyncLocals;
+    }
+    
+    final void asyncLocals(AsyncLocals asyncLocals) {
+        this.asyncLocals = asyncLocals;
+    }
+    
     final protected String toString(String implementationName, String className, String methodSignature) {
         return String.format("%s[origin-class=%s, origin-method=%s, state=%s, scheduler=%s, blocker-version=%s, awaiting-on=%s]", 
             implementationName, className, methodSignature,
@@ -105,17 +158,85 @@ abstract public class AbstractAsyncMethod implements Runnable {
         );
     }
     
-    final Runnable createResumeHandler(Runnable originalResumer) {
+    final Runnable createResumeHandler(Runnable originalResumer, ResumePolicy resumePolicy) {
+        if (resumePolicy.isInline()) {
+            // Resume on the completing thread, no dispatch at all
+            return originalResumer;
+        }
+        Scheduler scheduler = resumePolicy.effectiveScheduler(this.scheduler);
         long currentBlockerVersion = blockerVersion.get();
         Runnable contextualResumer = scheduler.contextualize(originalResumer);
         if (scheduler.characteristics().contains(Scheduler.Characteristics.INTERRUPTIBLE)) {
-            return createInterruptibleResumeHandler(contextualResumer, currentBlockerVersion);
+            return createInterruptibleResumeHandler(scheduler, contextualResumer, currentBlockerVersion);
         } else {
-            return createSimplifiedResumeHandler(contextualResumer, currentBlockerVersion);
+            return createSimplifiedResumeHandler(scheduler, contextualResumer, currentBlockerVersion);
         }        
     }
     
-    private Runnable createInterruptibleResumeHandler(Runnable contextualResumer, long currentBlockerVersion) {
+    final Runnable createYieldHandler(Runnable originalResumer) {
+        long currentBlockerVersion = blockerVersion.get();
+        Runnable contextualResumer = scheduler.contextualize(originalResumer);
+        if (scheduler.characteristics().contains(Scheduler.Characteristics.INTERRUPTIBLE)) {
+            return createInterruptibleResumeHandler(scheduler, contextualResumer, currentBlockerVersion);
+        } else {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    // Always re-schedule, even on the same thread, 
+                    // to let other continuations run
+                    try {
+                        scheduler.schedule(contextualResumer);
+                    } catch (RejectedExecutionException ex) {
+                        failure(ex);
+                    }
+                }
+            };
+        }
+    }
+    
+    final boolean yieldBudgetExhausted(int maxIterations, long maxNanos) {
+        if (maxIterations > 0 && ++yieldIterations >= maxIterations) {
+            return true;
+        }
+        return maxNanos > 0 && System.nanoTime() - yieldSliceStart >= maxNanos;
+    }
+    
+    /**
+     * Preemption check inserted by the bytecode enhancer at loop back-edges 
+     * of the {@link net.tascalate.async.async} method body (when enabled). 
+     * The clock is sampled at the first back-edge after resume; then the sampling 
+     * interval is doubled (up to {@link #MAX_PREEMPTION_SAMPLING_INTERVAL} back-edges) 
+     * while iterations are short comparing to the time slice, and halved otherwise, 
+     * so slow loop bodies are checked on every iteration.
+     */
+    protected final @suspendable void preemptionPoint(long timeSliceNanos) {
+        if (--preemptionCountdown > 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - yieldSliceStart >= timeSliceNanos) {
+            // Budget is reset on resume
+            AsyncMethodExecutor.yieldNow();
+            return;
+        }
+        if (now - preemptionLastSample < (timeSliceNanos >>> 4)) {
+            preemptionInterval = Math.min(preemptionInterval << 1, MAX_PREEMPTION_SAMPLING_INTERVAL);
+        } else {
+            preemptionInterval = Math.max(preemptionInterval >>> 1, 1);
+        }
+        preemptionLastSample = now;
+        preemptionCountdown  = preemptionInterval;
+    }
+    
+    final void resetYieldBudget() {
+        yieldIterations      = 0;
+        yieldSliceStart      = System.nanoTime();
+        preemptionLastSample = yieldSliceStart;
+        preemptionInterval   = 1;
+        preemptionCountdown  = 1;
+    }
+    
+    private Runnable createInterruptibleResumeHandler(Scheduler scheduler, Runnable contextualResumer, long currentBlockerVersion) {
         return new Runnable() {
             @Override
             public void run() {
@@ -131,7 +252,7 @@ abstract public class AbstractAsyncMethod implements Runnable {
         };        
     }
     
-    private Runnable createSimplifiedResumeHandler(Runnable contextualResumer, long currentBlockerVersion) {
+    private Runnable createSimplifiedResumeHandler(Scheduler scheduler, Runnable contextualResumer, long currentBlockerVersion) {
         Thread suspendThread = Thread.currentThread();
         return new Runnable() {
             @Override
@@ -154,6 +275,7 @@ abstract public class AbstractAsyncMethod implements Runnable {
         if (blockerVersion.compareAndSet(expectedBlockerVersion, expectedBlockerVersion + 1)) {
             // Save references for outer promise cancellation
             this.terminateMethod = null;
+            this.awaitHandoff    = null;
             this.originalAwait   = resumePromise;
             // Re-check for race with main future cancellation
             cancelAwaitIfNecessary(null, resumePromise);
@@ -170,17 +292,41 @@ abstract public class AbstractAsyncMethod implements Runnable {
         CompletionStage<V> guardedAwait = terminateMethod.applyToEither(originalAwait, Function.identity());
         // Save references for outer promise cancellation
         this.terminateMethod = terminateMethod;
+        this.awaitHandoff    = null;
         this.originalAwait   = originalAwait;
         // Re-check for race with main future cancellation
         cancelAwaitIfNecessary(terminateMethod, originalAwait);
         return guardedAwait;
     }
+    
+    final void registerAwaitTarget(Handoff<?> handoff) {
+        blockerVersion.incrementAndGet();
+        // Save reference for outer promise cancellation
+        this.terminateMethod = null;
+        this.originalAwait   = null;
+        this.awaitHandoff    = handoff;
+        // Re-check for race with main future cancellation
+        cancelAwaitIfNecessary(null, null);
+    }
+    
+    final void unregisterAwaitTarget(Handoff<?> handoff) {
+        if (awaitHandoff == handoff) {
+            awaitHandoff = null;
+        }
+    }
 
     private void cancelAwaitIfNecessary(CompletableFuture<?> terminateMethod, CompletionStage<?> originalAwait) {
         if (future.isCancelled()) {
             this.terminateMethod = null;
             // First terminate method to avoid exceptions in method
-            terminateMethod.completeExceptionally(CloseSignal.INSTANCE);
+            if (null != terminateMethod) {
+                terminateMethod.completeExceptionally(CloseSignal.INSTANCE);
+            }
+            Handoff<?> handoff = awaitHandoff;
+            if (null != handoff) {
+                awaitHandoff = null;
+                handoff.cancel();
+            }
             // No longer need reference
             this.originalAwait = null;
             // Then cancel promise we are waiting on
@@ -228,6 +374,16 @@ abstract public class AbstractAsyncMethod implements Runnable {
     }
     
     
+    private static AsyncLocals inheritedAsyncLocals() {
+        if (!AsyncLocals.used()) {
+            // Avoid lookup of the calling method while nothing to inherit
+            return AsyncLocals.EMPTY;
+        }
+        // Immutable, so shared with the calling method as is
+        AbstractAsyncMethod caller = InternalCallContext.asyncMethod(false);
+        return null != caller ? caller.asyncLocals : AsyncLocals.EMPTY;
+    }
+    
     private static boolean cancelCompletionStage(CompletionStage<?> promise, boolean mayInterruptIfRunning) {
         if (promise instanceof Future) {
             Future<?> future = (Future<?>) promise;
@@ -24,8 +24,6 @@
  */
 package net.tascalate.async.core;
 
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 
 import net.tascalate.async.AsyncGenerator;
@@ -60,32 +58,12 @@ abstract public class AsyncGeneratorMethod<T> extends AbstractAsyncMethod {
     
     abstract protected @suspendable void doRun() throws Throwable;
     
-    final boolean checkDone() {
-        if (future.isDone()) {
-            // If we have synchronous error in generator method
-            // (as opposed to asynchronous that is managed by consumerLock
-            if (!future.isCancelled() && future.isCompletedExceptionally()) {
-                try {
-                    future.join();
-                } catch (final CancellationException ex) {
-                    // Should not happen -- completed exceptionally already checked
-                    throw new IllegalStateException(ex);
-                } catch (final CompletionException ex) {
-                    Exceptions.sneakyThrow(Exceptions.unrollCompletionException(ex));
-                }
-            }
-            return true;
-        } else {
-            return false;
-        }
-    }
-
     protected final AsyncGenerator<T> yield() {
         return generator;
     }
     
     protected @suspendable final YieldReply<T> yield(T readyValue) {
-        return generator.produce(AsyncGenerator.from(readyValue));
+        return generator.produce(readyValue);
     }
 
     protected @suspendable final YieldReply<T> yield(CompletionStage<T> pendingValue) {
@@ -0,0 +1,117 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.core;
+
+import java.util.Arrays;
+
+/**
+ * Immutable map of {@link net.tascalate.async.AsyncLocal} values attached to 
+ * {@link AbstractAsyncMethod}. Every update creates a new instance, so the map 
+ * is shared as is with nested async methods (copy-on-write inheritance). 
+ * Number of keys is expected to be small, so lookup is a linear scan.
+ */
+final class AsyncLocals {
+    static final AsyncLocals EMPTY = new AsyncLocals(new Object[0], new Object[0]);
+    
+    // Set once any value is stored, until then there is nothing to inherit
+    private static volatile boolean used;
+    
+    private final Object[] keys;
+    private final Object[] values;
+    
+    private AsyncLocals(Object[] keys, Object[] values) {
+        this.keys   = keys;
+        this.values = values;
+    }
+    
+    static boolean used() {
+        return used;
+    }
+    
+    Object get(Object key) {
+        int idx = indexOf(key);
+        return idx < 0 ? null : values[idx];
+    }
+    
+    AsyncLocals with(Object key, Object value) {
+        if (!used) {
+            used = true;
+        }
+        int idx = indexOf(key);
+        if (idx >= 0) {
+            if (values[idx] == value) {
+                return this;
+            }
+            Object[] newValues = values.clone();
+            newValues[idx] = value;
+            return new AsyncLocals(keys, newValues);
+        } else {
+            Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            Object[] newValues = Arrays.copyOf(values, values.length + 1);
+            newKeys[keys.length] = key;
+            newValues[values.length] = value;
+            return new AsyncLocals(newKeys, newValues);
+        }
+    }
+    
+    AsyncLocals without(Object key) {
+        int idx = indexOf(key);
+        if (idx < 0) {
+            return this;
+        }
+        if (keys.length == 1) {
+            return EMPTY;
+        }
+        Object[] newKeys = new Object[keys.length - 1];
+        Object[] newValues = new Object[values.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, idx);
+        System.arraycopy(keys, idx + 1, newKeys, idx, keys.length - idx - 1);
+        System.arraycopy(values, 0, newValues, 0, idx);
+        System.arraycopy(values, idx + 1, newValues, idx, values.length - idx - 1);
+        return new AsyncLocals(newKeys, newValues);
+    }
+    
+    private int indexOf(Object key) {
+        Object[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(getClass().getSimpleName()).append('{');
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(keys[i]).append('=').append(values[i]);
+        }
+        return result.append('}').toString();
+    }
+}
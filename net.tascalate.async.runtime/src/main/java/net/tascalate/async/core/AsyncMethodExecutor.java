@@ -24,7 +24,10 @@
  */
 package net.tascalate.async.core;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
@@ -36,8 +39,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.tascalate.async.InvalidCallContextException;
+import net.tascalate.async.ResumePolicy;
 import net.tascalate.async.Scheduler;
 import net.tascalate.async.suspendable;
+import net.tascalate.async.spi.SchedulerProviderLookup;
 
 /**
  * 
@@ -65,7 +70,7 @@ public class AsyncMethodExecutor {
         // Start it
         ContinuationResumer<?, Throwable> originalInvoker = new ContinuationResumer<>(continuation);
         originalInvoker.setup(null, null);
-        asyncMethod.createResumeHandler(originalInvoker).run();
+        asyncMethod.createResumeHandler(originalInvoker, ResumePolicy.defaultScheduler()).run();
     }
 
     /**
@@ -101,7 +106,19 @@ public class AsyncMethodExecutor {
         AbstractAsyncMethod suspendedMethod = suspendParams.suspendedMethod;
         
         ContinuationResumer<? super R, Throwable> originalResumer = new ContinuationResumer<>(continuation);
-        Runnable wrappedResumer = suspendedMethod.createResumeHandler(originalResumer);
+        Handoff<R> handoff = suspendParams.handoff;
+        if (null != handoff) {
+            // Completing side resumes continuation directly
+            handoff.park(originalResumer, suspendedMethod.createResumeHandler(originalResumer, suspendParams.resumePolicy));
+            return;
+        }
+        if (null == future) {
+            // Cooperative yield - nothing to wait for, just re-schedule
+            originalResumer.setup(null, null);
+            suspendedMethod.createYieldHandler(originalResumer).run();
+            return;
+        }
+        Runnable wrappedResumer = suspendedMethod.createResumeHandler(originalResumer, suspendParams.resumePolicy);
         // Setup future and give it a chance to continue the Continuation
         try {
             future.whenComplete((r, e) -> {
@@ -116,12 +133,18 @@ public class AsyncMethodExecutor {
     /**
      */
     public @suspendable static <R, E extends Throwable> R await(CompletionStage<R> future) throws E {
-        return INSTANCE.awaitTask(future);
+        return INSTANCE.awaitTask(future, ResumePolicy.defaultScheduler());
+    }
+    
+    /**
+     */
+    public @suspendable static <R, E extends Throwable> R await(CompletionStage<R> future, ResumePolicy resumePolicy) throws E {
+        return INSTANCE.awaitTask(future, null != resumePolicy ? resumePolicy : ResumePolicy.defaultScheduler());
     }
 
     /**
      */
-    protected @suspendable <R, E extends Throwable> R awaitTask(CompletionStage<R> future) throws E {
+    protected @suspendable <R, E extends Throwable> R awaitTask(CompletionStage<R> future, ResumePolicy resumePolicy) throws E {
         // Blocking is available - resume() method is being called
     	
         // If promise is already resolved don't suspend
@@ -132,6 +155,13 @@ public class AsyncMethodExecutor {
         }
         
         AbstractAsyncMethod currentMethod = InternalCallContext.asyncMethod();
+        // Generators pass values produced so far before waiting, the future may be resolved meanwhile
+        if (currentMethod.beforeAwait()) {
+            earlyResult = getResolvedOutcome(future);
+            if (earlyResult != null) {
+                return earlyResult.done();
+            }
+        }
 
         // Register (and wrap) promise we are blocking on
         // to support cancellation from outside
@@ -141,9 +171,11 @@ public class AsyncMethodExecutor {
         log.debug("Suspending continuation");
         Object outcome = Continuation.suspend(
             // Save Runnable of the suspending continuation + future
-            new SuspendParams<>(currentMethod, future)
+            new SuspendParams<>(currentMethod, future, resumePolicy)
         );
         log.debug("Continuation continued");
+        // Thread was released, so new time slice is started
+        currentMethod.resetYieldBudget();
 
         if (outcome instanceof FutureResult) {
             // Unwrap and return value
@@ -158,6 +190,81 @@ public class AsyncMethodExecutor {
         }
     }
     
+    /**
+     * Await on the {@link Handoff} cell, the continuation is suspended only if 
+     * the cell is not completed yet.
+     */
+    @suspendable static <R, E extends Throwable> R await(Handoff<R> handoff) throws E {
+        return INSTANCE.awaitHandoff(handoff);
+    }
+    
+    protected @suspendable <R, E extends Throwable> R awaitHandoff(Handoff<R> handoff) throws E {
+        AbstractAsyncMethod currentMethod = InternalCallContext.asyncMethod();
+        // Register handoff cell to support cancellation from outside
+        currentMethod.registerAwaitTarget(handoff);
+        
+        log.debug("Suspending continuation on handoff");
+        Object outcome = Continuation.suspend(
+            new SuspendParams<>(currentMethod, handoff)
+        );
+        log.debug("Continuation continued after handoff");
+        currentMethod.resetYieldBudget();
+        currentMethod.unregisterAwaitTarget(handoff);
+
+        if (outcome instanceof FutureResult) {
+            @SuppressWarnings("unchecked")
+            FutureResult<R, E> either = (FutureResult<R, E>) outcome;
+            return either.done();
+        } else {
+            // Illegal wake-up
+            throw new InvalidCallContextException(
+                "Continuation was suspended incorrectly - are your classes instrumented for javaflow?"
+            );
+        }
+    }
+    
+    /**
+     */
+    public @suspendable static void yieldNow() {
+        INSTANCE.yieldTask();
+    }
+    
+    /**
+     */
+    public @suspendable static boolean yieldAfter(int maxIterations, long maxMicros) {
+        AbstractAsyncMethod currentMethod = InternalCallContext.asyncMethod();
+        if (currentMethod.yieldBudgetExhausted(maxIterations, maxMicros > 0 ? maxMicros * 1000L : 0L)) {
+            INSTANCE.yieldTask();
+            return true;
+        } else {
+            return false;
+        }
+    }
+    
+    /**
+     */
+    protected @suspendable void yieldTask() {
+        AbstractAsyncMethod currentMethod = InternalCallContext.asyncMethod();
+        if (currentMethod.scheduler() == Scheduler.sameThreadContextless()) {
+            // Nothing to give way to
+            currentMethod.resetYieldBudget();
+            return;
+        }
+        log.debug("Yielding continuation");
+        Object outcome = Continuation.suspend(
+            new SuspendParams<>(currentMethod, null, ResumePolicy.defaultScheduler())
+        );
+        log.debug("Continuation continued after yield");
+        currentMethod.resetYieldBudget();
+        
+        if (!(outcome instanceof FutureResult)) {
+            // Illegal wake-up
+            throw new InvalidCallContextException(
+                "Continuation was suspended incorrectly - are your classes instrumented for javaflow?"
+            );
+        }
+    }
+    
     public static Scheduler currentScheduler(Scheduler explicitScheduler, Object owner, MethodHandles.Lookup ownerClassLookup) {
         return null != explicitScheduler ? 
             explicitScheduler 
@@ -165,6 +272,49 @@ public class AsyncMethodExecutor {
             SchedulerResolvers.currentScheduler(owner, ownerClassLookup);
     }
     
+    public static Scheduler currentScheduler(Scheduler explicitScheduler, Object owner, MethodHandles.Lookup ownerClassLookup,
+                                             String schedulerName) {
+        return null != explicitScheduler ? 
+            explicitScheduler 
+            : 
+            SchedulerResolvers.currentScheduler(owner, ownerClassLookup, schedulerName);
+    }
+    
+    /**
+     * Lets scheduler resolvers build metadata for the owner class in advance, 
+     * see {@link net.tascalate.async.spi.SchedulerProviderWarmUp}.
+     */
+    public static void prepareCurrentScheduler(MethodHandles.Lookup ownerClassLookup) {
+        SchedulerResolvers.prepare(ownerClassLookup);
+    }
+    
+    /**
+     * Bootstrap method for invokedynamic call sites that resolve {@link Scheduler} 
+     * in methods generated by the bytecode enhancer. The call site type is either
+     * (Scheduler explicitScheduler)Scheduler for static methods or
+     * (Scheduler explicitScheduler, Object owner)Scheduler for instance methods.
+     * Static arguments are all {@link net.tascalate.async.SchedulerProvider} members 
+     * declared by the owner class as detected by the bytecode enhancer.
+     */
+    public static CallSite bootstrapCurrentScheduler(MethodHandles.Lookup ownerClassLookup, String name, MethodType type, 
+                                                     MethodHandle... declaredProviders) {
+        SchedulerProviderLookup.declareProviders(ownerClassLookup, declaredProviders);
+        return new SchedulerCallSite(ownerClassLookup, type);
+    }
+    
+    /**
+     * Bootstrap method for invokedynamic call sites that resolve {@link Scheduler} 
+     * in methods bound to the scheduler registered in {@link net.tascalate.async.SchedulerRegistry}
+     * by name, either via {@link net.tascalate.async.async#scheduler()} or 
+     * {@link net.tascalate.async.NamedScheduler}. The call site type is the same as for
+     * {@link #bootstrapCurrentScheduler(MethodHandles.Lookup, String, MethodType, MethodHandle...)}
+     */
+    public static CallSite bootstrapNamedScheduler(MethodHandles.Lookup ownerClassLookup, String name, MethodType type, 
+                                                   String schedulerName, MethodHandle... declaredProviders) {
+        SchedulerProviderLookup.declareProviders(ownerClassLookup, declaredProviders);
+        return new SchedulerCallSite(ownerClassLookup, type, schedulerName);
+    }
+    
     private static <R, E extends Throwable> FutureResult<R, E> getResolvedOutcome(CompletionStage<R> stage) {
         if (stage instanceof Future) {
             @SuppressWarnings("unchecked")
@@ -191,10 +341,22 @@ public class AsyncMethodExecutor {
     static class SuspendParams<R> {
         final AbstractAsyncMethod suspendedMethod;
         final CompletionStage<R> future;
+        final Handoff<R> handoff;
+        final ResumePolicy resumePolicy;
+        
+        SuspendParams(AbstractAsyncMethod suspendedMethod, CompletionStage<R> future, ResumePolicy resumePolicy) {
+            this(suspendedMethod, future, null, resumePolicy);
+        }
+        
+        SuspendParams(AbstractAsyncMethod suspendedMethod, Handoff<R> handoff) {
+            this(suspendedMethod, null, handoff, ResumePolicy.defaultScheduler());
+        }
         
-        SuspendParams(AbstractAsyncMethod suspendedMethod, CompletionStage<R> future) {
+        private SuspendParams(AbstractAsyncMethod suspendedMethod, CompletionStage<R> future, Handoff<R> handoff, ResumePolicy resumePolicy) {
             this.suspendedMethod = suspendedMethod;
             this.future = future;
+            this.handoff = handoff;
+            this.resumePolicy = resumePolicy;
         }
     }
     
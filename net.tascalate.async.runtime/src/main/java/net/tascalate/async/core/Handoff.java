@@ -0,0 +1,159 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.core;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.tascalate.async.suspendable;
+
+/**
+ * Reusable single-producer / single-consumer handoff cell: one side completes 
+ * the cell with a value (or an error), another side awaits it. Unlike 
+ * {@link java.util.concurrent.CompletableFuture} the cell is reset after every
+ * handoff, so the same instance serves all elements of the {@link LazyGenerator}.
+ * The awaiting continuation is resumed directly by the completing side 
+ * (via the resume handler of the {@link AbstractAsyncMethod}).
+ */
+final class Handoff<V> {
+    private static final int EMPTY   = 0;
+    private static final int READY   = 1;
+    private static final int PARKED  = 2;
+    // Transitional state while the outcome or the resumer is being handed off
+    private static final int CLAIMED = 3;
+    
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Handoff> STATE = 
+        AtomicIntegerFieldUpdater.newUpdater(Handoff.class, "state");
+    
+    private volatile int state = EMPTY;
+    
+    // Published / consumed via state transitions
+    private V value;
+    private Throwable error;
+    private AsyncMethodExecutor.ContinuationResumer<? super V, Throwable> resumer;
+    private Runnable resumeHandler;
+    
+    /**
+     * Passes the outcome to the awaiting side, resuming it if suspended
+     * @return false if the previous outcome was not taken yet (the call is ignored then)
+     */
+    boolean complete(V value, Throwable error) {
+        while (true) {
+            int current = state;
+            if (EMPTY == current) {
+                if (STATE.compareAndSet(this, EMPTY, CLAIMED)) {
+                    this.value = value;
+                    this.error = error;
+                    state = READY;
+                    return true;
+                }
+            } else if (PARKED == current) {
+                if (STATE.compareAndSet(this, PARKED, CLAIMED)) {
+                    AsyncMethodExecutor.ContinuationResumer<? super V, Throwable> currentResumer = resumer;
+                    Runnable currentResumeHandler = resumeHandler;
+                    resumer = null;
+                    resumeHandler = null;
+                    state = EMPTY;
+                    resume(currentResumer, currentResumeHandler, value, error);
+                    return true;
+                }
+            } else {
+                // Completed already (or being completed by other side)
+                return false;
+            }
+        }
+    }
+    
+    boolean cancel() {
+        return complete(null, CloseSignal.INSTANCE);
+    }
+    
+    @suspendable V await() {
+        if (READY == state) {
+            // Fast path - no suspension
+            return take();
+        } else {
+            return AsyncMethodExecutor.await(this);
+        }
+    }
+    
+    /**
+     * Invoked by {@link AsyncMethodExecutor} once the awaiting continuation is suspended
+     */
+    void park(AsyncMethodExecutor.ContinuationResumer<? super V, Throwable> resumer, Runnable resumeHandler) {
+        this.resumer = resumer;
+        this.resumeHandler = resumeHandler;
+        while (true) {
+            int current = state;
+            if (EMPTY == current) {
+                if (STATE.compareAndSet(this, EMPTY, PARKED)) {
+                    return;
+                }
+            } else if (READY == current) {
+                // Completed while suspending
+                this.resumer = null;
+                this.resumeHandler = null;
+                V readyValue = value;
+                Throwable readyError = error;
+                value = null;
+                error = null;
+                state = EMPTY;
+                resume(resumer, resumeHandler, readyValue, readyError);
+                return;
+            } else {
+                // Completion is in progress, it takes a couple of instructions
+                Thread.yield();
+            }
+        }
+    }
+    
+    private V take() {
+        V readyValue = value;
+        Throwable readyError = error;
+        value = null;
+        error = null;
+        state = EMPTY;
+        if (null != readyError) {
+            return Exceptions.sneakyThrow(readyError);
+        } else {
+            return readyValue;
+        }
+    }
+    
+    private static <V> void resume(AsyncMethodExecutor.ContinuationResumer<? super V, Throwable> resumer, 
+                                   Runnable resumeHandler, V readyValue, Throwable readyError) {
+        resumer.setup(readyValue, readyError);
+        resumeHandler.run();
+    }
+    
+    @Override
+    public String toString() {
+        int current = state;
+        return String.format(
+            "%s[state=%s]", getClass().getSimpleName(), 
+            EMPTY == current ? "empty" : READY == current ? "ready" : PARKED == current ? "parked" : "claimed"
+        );
+    }
+}
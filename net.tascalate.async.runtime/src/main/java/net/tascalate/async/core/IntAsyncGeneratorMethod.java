@@ -0,0 +1,55 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.core;
+
+import net.tascalate.async.IntAsyncGenerator;
+import net.tascalate.async.Scheduler;
+import net.tascalate.async.suspendable;
+
+abstract public class IntAsyncGeneratorMethod extends PrimitiveGeneratorMethod {
+    public final LazyIntGenerator generator;
+    
+    protected IntAsyncGeneratorMethod(Scheduler scheduler) {
+        super(scheduler);
+        this.generator = new LazyIntGenerator(this);
+    }
+    
+    @Override
+    final LazyPrimitiveGenerator<?> lazyGenerator() {
+        return generator;
+    }
+    
+    protected final IntAsyncGenerator yieldInt() {
+        return generator;
+    }
+    
+    protected @suspendable final void yieldInt(int value) {
+        generator.produce(value);
+    }
+    
+    protected @suspendable final void yieldInt(int[] values) {
+        generator.produce(values);
+    }
+}
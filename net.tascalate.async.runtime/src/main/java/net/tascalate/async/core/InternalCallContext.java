@@ -42,16 +42,30 @@ public class InternalCallContext {
         return asyncMethod != null && asyncMethod.interrupted();
     }
     
+    public static Object getAsyncLocal(Object key) {
+        return asyncMethod(true).asyncLocals().get(key);
+    }
+    
+    public static void setAsyncLocal(Object key, Object value) {
+        AbstractAsyncMethod asyncMethod = asyncMethod(true);
+        AsyncLocals asyncLocals = asyncMethod.asyncLocals();
+        asyncMethod.asyncLocals(null == value ? asyncLocals.without(key) : asyncLocals.with(key, value));
+    }
+    
     static AbstractAsyncMethod asyncMethod() {
         return asyncMethod(true);
     }
     
-    private static AbstractAsyncMethod asyncMethod(boolean mustBeAvailable) {
+    static AbstractAsyncMethod asyncMethod(boolean mustBeAvailable) {
         StackRecorder stackRecorder = StackRecorder.get();
-        if (null == stackRecorder && mustBeAvailable) {
-            throw new InvalidCallContextException(
-                "Continuation was continued incorrectly - are your classes instrumented for javaflow?"
-            );
+        if (null == stackRecorder) {
+            if (mustBeAvailable) {
+                throw new InvalidCallContextException(
+                    "Continuation was continued incorrectly - are your classes instrumented for javaflow?"
+                );
+            } else {
+                return null;
+            }
         }
         Runnable result = stackRecorder.getRunnable();
         if (result instanceof AbstractAsyncMethod) {
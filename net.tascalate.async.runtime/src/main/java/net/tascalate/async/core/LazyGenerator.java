@@ -24,6 +24,10 @@
  */
 package net.tascalate.async.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
@@ -32,15 +36,28 @@ import net.tascalate.async.InteractiveSequence;
 import net.tascalate.async.Sequence;
 import net.tascalate.async.YieldReply;
 import net.tascalate.async.suspendable;
+import net.tascalate.async.sequence.CompletionSequence;
+import net.tascalate.async.sequence.OrderedSequence;
+
+import net.tascalate.javaflow.SuspendableIterator;
 
 class LazyGenerator<T> implements AsyncGenerator<T> {
     private final AsyncGeneratorMethod<?> owner;
-	
-    private CompletableFuture<YieldReply<T>> producerLock;
-    private CompletableFuture<?> consumerLock;
+    
+    // Consumer -> producer: reply to the latest yield 
+    private final Handoff<YieldReply<T>> producerHandoff = new Handoff<>();
+    // Producer -> consumer: new values are yielded (or generator is done)
+    private final Handoff<Object> consumerHandoff = new Handoff<>();
+    
     private CompletionStage<T> latestFuture;
+    // Latest element is a ready value yielded as is, latestFuture is created on demand
+    private boolean latestReady;
+    private T latestValue;
 
     private Sequence<? extends CompletionStage<T>> currentDelegate = Sequence.empty();
+    // Ready value yielded but not consumed yet (instead of the delegate)
+    private boolean pendingReady;
+    private T pendingValue;
     
     LazyGenerator(AsyncGeneratorMethod<T> owner) {
     	this.owner = owner;
@@ -53,14 +70,94 @@ class LazyGenerator<T> implements AsyncGenerator<T> {
     
     @Override
     public CompletionStage<T> next(Object param) {
+        if (!advance(param)) {
+            return null;
+        }
+        if (latestReady && null == latestFuture) {
+            // Consumer asks for a stage explicitly
+            latestFuture = CompletableFuture.completedFuture(latestValue);
+        }
+        return latestFuture;
+    }
+    
+    @Override
+    public SuspendableIterator<T> valuesIterator() {
+        // Ready values are returned as is, without wrapping them into stages
+        return new SuspendableIterator<T>() {
+            private boolean advance = true;
+            private boolean available;
+            
+            @Override
+            public boolean hasNext() {
+                advanceIfNecessary();
+                return available;
+            }
+
+            @Override
+            public T next() {
+                advanceIfNecessary();
+                if (!available) {
+                    throw new NoSuchElementException();
+                }
+                advance = true;
+                return latestReady ? latestValue : AsyncMethodExecutor.await(latestFuture);
+            }
+
+            @Override
+            public void close() {
+                advance = false;
+                available = false;
+                LazyGenerator.this.close();
+            }
+            
+            private @suspendable void advanceIfNecessary() {
+                if (advance) {
+                    available = advance(NO_PARAM);
+                }
+                advance = false;
+            }
+
+            @Override
+            public String toString() {
+                return String.format("%s-ValuesIterator[owner=%s]", getClass().getSimpleName(), LazyGenerator.this);
+            }            
+        };
+    }
+    
+    private @suspendable boolean advance(Object param) {
         // Loop to replace tail recursion - BEGIN
         while (true) {
             if (owner.checkDone()) {
-                return null;
+                return false;
             }
             
             // Await previously returned result, if any
-            FutureResult<T> latestResult = FutureResult.of(latestFuture);
+            T previousValue = null;
+            Throwable previousError = null;
+            if (latestReady) {
+                previousValue = latestValue;
+            } else {
+                CompletionStage<T> previousFuture = latestFuture;
+                if (null != previousFuture) {
+                    try {
+                        previousValue = AsyncMethodExecutor.await(previousFuture);
+                    } catch (Exception ex) {
+                        previousError = ex;
+                    }
+                }
+            }
+            
+            // Is there a ready value yielded?
+            if (pendingReady) {
+                latestReady  = true;
+                latestValue  = pendingValue;
+                latestFuture = null;
+                pendingReady = false;
+                pendingValue = null;
+                return true;
+            }
+            latestReady = false;
+            latestValue = null;
             
             // Could we advance further current delegate?
             if (NO_PARAM == param) {
@@ -76,21 +173,56 @@ class LazyGenerator<T> implements AsyncGenerator<T> {
                 
             if (null != latestFuture) {
                 // Yes, we can
-                return latestFuture;
+                return true;
             }
     
             // No, need to generate new promise;
     
             // Let produce some value (resumes producer)
-            latestResult.releaseLock(producerLock, param);
+            producerHandoff.complete(
+                null == previousError ? new YieldReply<>(previousValue, param) : null, previousError
+            );
             // Wait till value is ready (suspends consumer)
-            acquireConsumerLock();
-            consumerLock = new CompletableFuture<>();
+            consumerHandoff.await();
             // Check everything once again after wait
         }
         // Loop to replace tail recursion - END
         // The actual tail recursive call is:
-        //return next(param);
+        //return advance(param);
+    }
+
+    @Override
+    public List<CompletionStage<T>> nextBatch(int maxCount) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("Max count must be positive: " + maxCount);
+        }
+        // Suspends, if necessary, only here
+        CompletionStage<T> first = next();
+        if (null == first) {
+            return Collections.emptyList();
+        }
+        List<CompletionStage<T>> result = new ArrayList<>();
+        result.add(first);
+        if (maxCount > 1) {
+            // Add elements that the current delegate has already available, 
+            // producer is not resumed for them
+            Sequence<? extends CompletionStage<T>> delegate = currentDelegate;
+            List<? extends CompletionStage<T>> ready;
+            if (delegate instanceof OrderedSequence) {
+                ready = delegate.nextBatch(maxCount - 1);
+            } else if (delegate instanceof CompletionSequence) {
+                ready = ((CompletionSequence<?, ? extends CompletionStage<T>>)delegate).nextReady(maxCount - 1);
+            } else {
+                ready = Collections.emptyList();
+            }
+            if (!ready.isEmpty()) {
+                result.addAll(ready);
+                latestReady  = false;
+                latestValue  = null;
+                latestFuture = ready.get(ready.size() - 1);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -100,120 +232,49 @@ class LazyGenerator<T> implements AsyncGenerator<T> {
         end(null);
     }
 
+    final @suspendable YieldReply<T> produce(T readyValue) {
+        pendingValue = readyValue;
+        pendingReady = true;
+        currentDelegate = Sequence.empty();
+        // Resume consumer, if suspended
+        consumerHandoff.complete(null, null);
+        return producerHandoff.await();
+    }
+
     final @suspendable YieldReply<T> produce(Sequence<? extends CompletionStage<T>> pendingValues) {
         currentDelegate = pendingValues;
-        // Re-set producerLock
-        // It's important to reset it before unlocking consumer!
-        producerLock = new CompletableFuture<>();
         // Allow to consume new promise(s) yielded
-        // Unlock consumer, if locked (initially it's unlocked)
-        releaseConsumerLock();
-        return acquireProducerLock();
+        // Resume consumer, if suspended
+        consumerHandoff.complete(null, null);
+        return producerHandoff.await();
     }
 
     final @suspendable void begin() {
-        // Start with locked producer and unlocked consumer
-        producerLock = new CompletableFuture<>();
-        acquireProducerLock();
+        // Start with suspended producer, it's resumed by the first next() call
+        producerHandoff.await();
     }
 
     final void end(Throwable ex) {
         // Set synchronous error in generator method
-        // (as opposed to asynchronous that is managed by consumerLock        
+        // (as opposed to asynchronous that is managed by consumer)
         if (null == ex) {
             owner.success(null);
         } else {
             owner.failure(ex);
         }
         currentDelegate = Sequence.empty();
-        releaseConsumerLock();
+        pendingReady = false;
+        pendingValue = null;
+        consumerHandoff.complete(null, null);
     }
 
-    private @suspendable YieldReply<T> acquireProducerLock() {
-        CompletableFuture<YieldReply<T>> currentLock = producerLock;
-        if (!currentLock.isDone()) {
-            return AsyncMethodExecutor.await(currentLock);
-        } else {
-            // Never returns null while isDone() == true
-            return currentLock.getNow(null);
-        }
-    }
-    
-    private @suspendable void acquireConsumerLock() {
-        // When next() is called for first time
-        // then consumerLock is NULL
-        CompletableFuture<?> currentLock = consumerLock;
-    	if (null != currentLock) {
-    	    if (!currentLock.isDone()) {
-                AsyncMethodExecutor.await(currentLock);
-    	    }
-            // Order matters - set to null only after wait      
-            consumerLock = null;
-    	}
-    }
-    
-    private void releaseConsumerLock() {
-        final CompletableFuture<?> currentLock = consumerLock;
-        if (null != currentLock) {
-            consumerLock = null;
-            currentLock.complete(null);
-        }
-    }
-    
     @Override
     public String toString() {
         return String.format(
-            "<generator{%s}>[consumer-lock=%s, producer-lock=%s, current-delegate=%s]", 
-            getClass().getSimpleName(), consumerLock, producerLock, currentDelegate
+            "<generator{%s}>[consumer-handoff=%s, producer-handoff=%s, current-delegate=%s]", 
+            getClass().getSimpleName(), consumerHandoff, producerHandoff, currentDelegate
         );
     }
     
-    abstract static class FutureResult<T> {
-        static class Success<T> extends FutureResult<T> {
-            final T result;
-            
-            Success(T result) { 
-                this.result = result; 
-            }
-            
-            @Override
-            void releaseLock(CompletableFuture<YieldReply<T>> lock, Object param) {
-                lock.complete(new YieldReply<>(result, param));
-            }
-        }
-        
-        static class Failure<T> extends FutureResult<T> {
-            final Throwable error;
-            
-            Failure(Throwable error) { 
-                this.error  = error; 
-            }
-            
-            @Override
-            void releaseLock(CompletableFuture<YieldReply<T>> lock, Object param) {
-                lock.completeExceptionally(error);
-            }
-        }
-        
-        @suspendable 
-        static <T> FutureResult<T> of(CompletionStage<? extends T> future) {
-            if (null == future) {
-                @SuppressWarnings("unchecked")
-                FutureResult<T> empty = (FutureResult<T>)EMPTY;
-                return empty;
-            } else {
-                try {
-                    return new Success<T>(AsyncMethodExecutor.await(future));
-                } catch (Exception ex) {
-                    return new Failure<T>(ex);
-                }
-            }
-        }
-        
-        abstract void releaseLock(CompletableFuture<YieldReply<T>> lock, Object param);
-        
-        private static final FutureResult<Object> EMPTY = new Success<Object>(null);
-    }
-    
     private static final Object NO_PARAM = new Object();
 }
@@ -0,0 +1,80 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.core;
+
+import java.util.NoSuchElementException;
+
+import net.tascalate.async.LongAsyncGenerator;
+import net.tascalate.async.suspendable;
+
+final class LazyLongGenerator extends LazyPrimitiveGenerator<long[]> implements LongAsyncGenerator {
+    // Look-ahead value of hasNext()
+    private final long[] single = new long[1];
+    private boolean hasSingle;
+    
+    LazyLongGenerator(LongAsyncGeneratorMethod owner) {
+        super(owner);
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (!hasSingle) {
+            hasSingle = fill(single, 0, 1) > 0;
+        }
+        return hasSingle;
+    }
+    
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasSingle = false;
+        return single[0];
+    }
+    
+    @Override
+    public int nextBatch(long[] buffer, int offset, int length) {
+        checkBounds(buffer.length, offset, length);
+        if (hasSingle) {
+            hasSingle = false;
+            buffer[offset] = single[0];
+            return 1 + (length > 1 ? drainChunk(buffer, offset + 1, length - 1) : 0);
+        } else {
+            return fill(buffer, offset, length);
+        }
+    }
+    
+    final @suspendable void produce(long value) {
+        buffer[position++] = value;
+        if (position == limit) {
+            handOff();
+        }
+    }
+    
+    final @suspendable void produce(long[] values) {
+        produceAll(values, values.length);
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.core;
+
+import net.tascalate.async.suspendable;
+
+/**
+ * Base class of primitive generators: the consumer passes its array to the 
+ * producer and the producer writes yielded values directly there, so 
+ * neither boxing nor per-element futures are necessary. The buffer is handed 
+ * off once it's full or once the producer is about to suspend on the pending 
+ * future with some values written, so the consumer waits only for the first value.
+ * @param <A> primitive array type
+ */
+abstract class LazyPrimitiveGenerator<A> {
+    private final PrimitiveGeneratorMethod owner;
+    
+    // Consumer -> producer: more values are requested 
+    private final Handoff<Object> producerHandoff = new Handoff<>();
+    // Producer -> consumer: buffer is filled (or generator is done)
+    private final Handoff<Object> consumerHandoff = new Handoff<>();
+    
+    // Consumer buffer that is filled by the producer
+    A buffer;
+    private int start;
+    int position;
+    int limit;
+    
+    // Rest of the array yielded by the producer that is not consumed yet
+    private A chunk;
+    private int chunkPosition;
+    private int chunkLimit;
+    
+    LazyPrimitiveGenerator(PrimitiveGeneratorMethod owner) {
+        this.owner = owner;
+    }
+    
+    final @suspendable int fill(A target, int offset, int length) {
+        int count = drainChunk(target, offset, length);
+        if (count > 0) {
+            // Available without resuming producer
+            return count;
+        }
+        if (owner.checkDone()) {
+            return 0;
+        }
+        buffer   = target;
+        start    = offset;
+        position = offset;
+        limit    = offset + length;
+        // Let produce some values (resumes producer)
+        producerHandoff.complete(null, null);
+        // Wait till buffer is filled (suspends consumer)
+        consumerHandoff.await();
+        count  = position - offset;
+        buffer = null;
+        if (0 == count) {
+            // Generator is over, re-throw producer error, if any
+            owner.checkDone();
+        }
+        return count;
+    }
+    
+    final int drainChunk(A target, int offset, int length) {
+        A source = chunk;
+        if (null == source) {
+            return 0;
+        }
+        int count = Math.min(length, chunkLimit - chunkPosition);
+        System.arraycopy(source, chunkPosition, target, offset, count);
+        chunkPosition += count;
+        if (chunkPosition == chunkLimit) {
+            chunk = null;
+        }
+        return count;
+    }
+    
+    final @suspendable void produceAll(A values, int length) {
+        int count = Math.min(length, limit - position);
+        System.arraycopy(values, 0, buffer, position, count);
+        position += count;
+        if (position == limit) {
+            if (count < length) {
+                // Producer stays suspended till the rest is consumed,
+                // so the array may be referenced as is
+                chunk = values;
+                chunkPosition = count;
+                chunkLimit = length;
+            }
+            handOff();
+        }
+    }
+    
+    /**
+     * Invoked by the producer before it's suspended on the pending future: 
+     * values written so far are handed off without waiting for the future
+     * @return true if values were handed off (and the producer was suspended meanwhile)
+     */
+    final @suspendable boolean handOffBuffered() {
+        if (null != buffer && position > start) {
+            handOff();
+            return true;
+        }
+        return false;
+    }
+    
+    final @suspendable void handOff() {
+        // Resume consumer, if suspended
+        consumerHandoff.complete(null, null);
+        producerHandoff.await();
+    }
+
+    final @suspendable void begin() {
+        // Start with suspended producer, it's resumed by the first request
+        producerHandoff.await();
+    }
+
+    final void end(Throwable ex) {
+        if (null == ex) {
+            owner.success(null);
+        } else {
+            owner.failure(ex);
+        }
+        consumerHandoff.complete(null, null);
+    }
+    
+    public void close() {
+        owner.future.cancel(true);
+        chunk = null;
+        end(null);
+    }
+    
+    static void checkBounds(int arrayLength, int offset, int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Length must be positive: " + length);
+        }
+        if (offset < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException(
+                "Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + arrayLength
+            );
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "<generator{%s}>[consumer-handoff=%s, producer-handoff=%s]", 
+            getClass().getSimpleName(), consumerHandoff, producerHandoff
+        );
+    }
+}
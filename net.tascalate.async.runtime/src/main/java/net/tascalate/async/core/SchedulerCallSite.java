@@ -0,0 +1,117 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+import net.tascalate.async.Scheduler;
+
+/**
+ * Call site that resolves the current {@link Scheduler} of the async method. The target 
+ * linked by {@link SchedulerResolvers#linkCurrentScheduler(MethodHandles.Lookup, boolean, String, MethodHandle)} 
+ * is re-linked once any of its guards is invalidated. While resolution depends on the call 
+ * context, the generic resolution is used, and re-linking is attempted periodically. 
+ * The number of re-linkings is limited to avoid thrashing, afterwards the generic 
+ * resolution is used permanently.
+ */
+final class SchedulerCallSite extends MutableCallSite {
+    private static final int MAX_RELINKS = 16;
+    private static final int RELINK_PROBE_INTERVAL = 4096;
+    
+    private static final MethodType RESOLUTION_TYPE = 
+        MethodType.methodType(Scheduler.class, Scheduler.class, Object.class);
+    
+    private final MethodHandles.Lookup ownerClassLookup;
+    private final boolean isStatic;
+    private final String schedulerName;
+    private final MethodHandle generic;
+    private final MethodHandle relink;
+    private final MethodHandle probe;
+    
+    // Not synchronized: racy updates may only cause extra re-linking
+    private int relinks;
+    private int genericCalls;
+    
+    SchedulerCallSite(MethodHandles.Lookup ownerClassLookup, MethodType type) {
+        this(ownerClassLookup, type, null);
+    }
+    
+    SchedulerCallSite(MethodHandles.Lookup ownerClassLookup, MethodType type, String schedulerName) {
+        super(type);
+        this.ownerClassLookup = ownerClassLookup;
+        this.isStatic = type.parameterCount() == 1;
+        this.schedulerName = schedulerName;
+        this.generic  = SchedulerResolvers.genericResolution(ownerClassLookup, schedulerName);
+        this.relink   = RELINK.bindTo(this);
+        this.probe    = PROBE.bindTo(this);
+        setTarget(adapt(link()));
+    }
+    
+    private MethodHandle link() {
+        MethodHandle linked = SchedulerResolvers.linkCurrentScheduler(ownerClassLookup, isStatic, schedulerName, relink);
+        // Null when resolution depends on the call context
+        return null != linked ? linked : probe;
+    }
+    
+    private void relinkTarget() {
+        setTarget(adapt(++relinks <= MAX_RELINKS ? link() : generic));
+    }
+    
+    private MethodHandle adapt(MethodHandle target) {
+        if (isStatic) {
+            target = MethodHandles.insertArguments(target, 1, (Object)null);
+        }
+        return target.asType(type());
+    }
+    
+    // Guard of the linked target is invalidated
+    private Scheduler relink(Scheduler explicitScheduler, Object owner) {
+        relinkTarget();
+        return AsyncMethodExecutor.currentScheduler(explicitScheduler, owner, ownerClassLookup, schedulerName);
+    }
+    
+    // Generic resolution that is re-linked from time to time
+    private Scheduler probe(Scheduler explicitScheduler, Object owner) {
+        if ((++genericCalls & (RELINK_PROBE_INTERVAL - 1)) == 0) {
+            relinkTarget();
+        }
+        return AsyncMethodExecutor.currentScheduler(explicitScheduler, owner, ownerClassLookup, schedulerName);
+    }
+    
+    private static final MethodHandle RELINK;
+    private static final MethodHandle PROBE;
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            RELINK = lookup.findVirtual(SchedulerCallSite.class, "relink", RESOLUTION_TYPE);
+            PROBE  = lookup.findVirtual(SchedulerCallSite.class, "probe", RESOLUTION_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+}
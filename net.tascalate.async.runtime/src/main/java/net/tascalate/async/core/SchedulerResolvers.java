@@ -24,30 +24,203 @@
  */
 package net.tascalate.async.core;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.SwitchPoint;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
 
 import net.tascalate.async.Scheduler;
+import net.tascalate.async.SchedulerRegistry;
 import net.tascalate.async.spi.SchedulerResolver;
-import net.tascalate.async.util.Cache;
+import net.tascalate.async.util.WeakIdentityCache;
 
 class SchedulerResolvers {
     private SchedulerResolvers() {}
     
     static Scheduler currentScheduler(Object owner, MethodHandles.Lookup ownerClassLookup) {
+        return currentScheduler(owner, ownerClassLookup, null);
+    }
+    
+    /**
+     * Resolves scheduler via the chain of resolvers, where the scheduler registered in {@link SchedulerRegistry}
+     * under the name given (if any) is checked before the resolvers of {@link SchedulerRegistry#RESOLUTION_PRIORITY} 
+     * and lower.
+     */
+    static Scheduler currentScheduler(Object owner, MethodHandles.Lookup ownerClassLookup, String schedulerName) {
         ClassLoader serviceClassLoader = getServiceClassLoader(owner != null ? owner.getClass() : ownerClassLookup.lookupClass());
-        ServiceLoader<SchedulerResolver> serviceLoader = getServiceLoader(serviceClassLoader);
-
-        return StreamSupport.stream(serviceLoader.spliterator(), false)
-            .sorted(SCHEDULER_RESOLVER_BY_PRIORITY)
-            .map(l -> l.resolve(owner, ownerClassLookup))
-            .filter(Objects::nonNull)
-            .findFirst()
-            .orElse(Scheduler.sameThreadContextless())
-        ;
+        SchedulerResolver[] resolvers = getResolvers(serviceClassLoader);
+        boolean checkName = null != schedulerName;
+        for (int i = 0; i < resolvers.length; i++) {
+            SchedulerResolver resolver = resolvers[i];
+            if (checkName && resolver.priority() <= SchedulerRegistry.RESOLUTION_PRIORITY) {
+                checkName = false;
+                Scheduler result = SchedulerRegistry.lookup(schedulerName);
+                if (null != result) {
+                    return result;
+                }
+            }
+            Scheduler result = resolver.resolve(owner, ownerClassLookup);
+            if (null != result) {
+                return result;
+            }
+        }
+        if (checkName) {
+            Scheduler result = SchedulerRegistry.lookup(schedulerName);
+            if (null != result) {
+                return result;
+            }
+        }
+        return Scheduler.sameThreadContextless();
+    }
+    
+    /**
+     * Creates the target for invokedynamic call site of type (Scheduler explicitScheduler, Object owner)Scheduler.
+     * Resolvers that are inactive for the owner class are skipped while their guards are valid,
+     * once any guard is invalidated the relink handle of the same type is used. The first active
+     * resolver is linked directly if it supports linkage, otherwise null is returned -- resolution
+     * depends on the call context. When the scheduler name is specified, the live binding of 
+     * {@link SchedulerRegistry} is linked before the resolvers of {@link SchedulerRegistry#RESOLUTION_PRIORITY} 
+     * and lower.
+     * <p>
+     * Resolvers are bound to the class loader of the owner class, so linked target is used only while
+     * it's the context class loader of the calling thread, otherwise the 
+     * {@link #currentScheduler(Object, java.lang.invoke.MethodHandles.Lookup, String)} is used.
+     */
+    static MethodHandle linkCurrentScheduler(MethodHandles.Lookup ownerClassLookup, boolean isStatic, 
+                                             String schedulerName, MethodHandle relink) {
+        ClassLoader ownerClassLoader = classLoaderOfClass(ownerClassLookup.lookupClass());
+        if (Thread.currentThread().getContextClassLoader() != ownerClassLoader) {
+            // Resolvers may differ per calling thread
+            return null;
+        }
+        MethodHandle generic = genericResolution(ownerClassLookup, schedulerName);
+        MethodHandle fallback = MethodHandles.insertArguments(generic, 0, (Scheduler)null);
+        SchedulerResolver[] resolvers = getResolvers(ownerClassLoader);
+        MethodHandle named = null == schedulerName ? null : MethodHandles.dropArguments(
+            SUPPLIER_GET.bindTo(SchedulerRegistry.bind(schedulerName)), 0, Object.class
+        );
+        
+        List<SwitchPoint> guards = new ArrayList<>();
+        MethodHandle specialized = null;
+        boolean namedFirst = false;
+        for (SchedulerResolver resolver : resolvers) {
+            if (null != named && !namedFirst && resolver.priority() <= SchedulerRegistry.RESOLUTION_PRIORITY) {
+                namedFirst = true;
+            }
+            SwitchPoint guard = resolver.inactivityGuard(ownerClassLookup, isStatic);
+            if (null != guard && !guard.hasBeenInvalidated()) {
+                guards.add(guard);
+                continue;
+            }
+            MethodHandle linked = resolver.link(ownerClassLookup, isStatic);
+            if (null != linked) {
+                specialized = orElse(linked, fallback);
+            } else if (namedFirst) {
+                specialized = fallback;
+            } else {
+                return null;
+            }
+            break;
+        }
+        
+        if (null == specialized) {
+            // All resolvers are inactive
+            specialized = MethodHandles.dropArguments(
+                MethodHandles.constant(Scheduler.class, Scheduler.sameThreadContextless()), 0, Object.class
+            );
+            namedFirst = null != named;
+        }
+        if (namedFirst) {
+            specialized = orElse(named, specialized);
+        }
+        
+        MethodHandle result = explicitFirst(specialized);
+        for (SwitchPoint guard : guards) {
+            result = guard.guardWithTest(result, relink);
+        }
+        return MethodHandles.guardWithTest(
+            MethodHandles.dropArguments(CONTEXT_CLASS_LOADER_IS.bindTo(ownerClassLoader), 0, Scheduler.class, Object.class),
+            result, 
+            generic
+        );
+    }
+    
+    static void prepare(MethodHandles.Lookup ownerClassLookup) {
+        // Same resolvers as used by linked call sites
+        for (SchedulerResolver resolver : getResolvers(classLoaderOfClass(ownerClassLookup.lookupClass()))) {
+            resolver.prepare(ownerClassLookup);
+        }
+    }
+    
+    /**
+     * Resolution of type (Scheduler explicitScheduler, Object owner)Scheduler via the
+     * {@link #currentScheduler(Object, java.lang.invoke.MethodHandles.Lookup, String)} 
+     */
+    static MethodHandle genericResolution(MethodHandles.Lookup ownerClassLookup, String schedulerName) {
+        return null == schedulerName ? 
+            MethodHandles.insertArguments(CURRENT_SCHEDULER, 2, ownerClassLookup)
+            :
+            MethodHandles.insertArguments(CURRENT_NAMED_SCHEDULER, 2, ownerClassLookup, schedulerName);
+    }
+    
+    private static MethodHandle orElse(MethodHandle linked, MethodHandle fallback) {
+        // If linked resolution gives null then use the fallback of type (Object owner)Scheduler
+        return MethodHandles.foldArguments(
+            MethodHandles.guardWithTest(
+                NON_NULL_FIRST, 
+                RETURN_FIRST, 
+                MethodHandles.dropArguments(fallback, 0, Scheduler.class)
+            ),
+            linked.asType(MethodType.methodType(Scheduler.class, Object.class))
+        );
+    }
+    
+    private static MethodHandle explicitFirst(MethodHandle resolution) {
+        return MethodHandles.guardWithTest(
+            NON_NULL_FIRST, RETURN_FIRST, MethodHandles.dropArguments(resolution, 0, Scheduler.class)
+        );
+    }
+    
+    private static SchedulerResolver[] getResolvers(ClassLoader classLoader) {
+        // Typically there is a single class loader, so check the last one first
+        ResolversChain chain = lastResolversChain;
+        if (null != chain && chain.classLoader.get() == classLoader) {
+            SchedulerResolver[] resolvers = chain.resolvers.get();
+            if (null != resolvers) {
+                return resolvers;
+            }
+        }
+        ResolversHolder holder = RESOLVERS_BY_CLASS_LOADER.get(classLoader, SchedulerResolvers::loadResolvers);
+        SchedulerResolver[] resolvers = holder.get();
+        lastResolversChain = new ResolversChain(classLoader, holder);
+        return resolvers;
+    }
+    
+    private static ResolversHolder loadResolvers(ClassLoader classLoader) {
+        ServiceLoader<SchedulerResolver> serviceLoader = ServiceLoader.load(SchedulerResolver.class, classLoader);
+        SchedulerResolver[] resolvers = StreamSupport.stream(serviceLoader.spliterator(), false)
+                                                     .sorted(SCHEDULER_RESOLVER_BY_PRIORITY)
+                                                     .toArray(SchedulerResolver[]::new);
+        for (SchedulerResolver resolver : resolvers) {
+            Class<?> resolverClass = resolver.getClass();
+            if (resolverClass.getClassLoader() == classLoader) {
+                // Resolver class pins its class loader, so the resolvers may not be referenced
+                // strongly from the cache -- attach them to this class instead
+                RESOLVERS_BY_OWN_CLASS.get(resolverClass).set(resolvers);
+                return new ClassBoundResolvers(resolverClass);
+            }
+        }
+        // Classes of resolvers are defined by the parent class loaders only
+        return new StrongResolvers(resolvers);
     }
     
     private static ClassLoader getServiceClassLoader(Class<?> ownerClassLoaderSource) {
@@ -60,11 +233,8 @@ class SchedulerResolvers {
             contextClassLoader : ownerClassLoader;
     }
     
-    private static ServiceLoader<SchedulerResolver> getServiceLoader(ClassLoader classLoader) {
-        return SERVICE_LOADER_BY_CLASS_LOADER.get(
-            classLoader, 
-            cl -> ServiceLoader.load(SchedulerResolver.class, cl)
-        );
+    private static boolean isContextClassLoader(ClassLoader classLoader) {
+        return Thread.currentThread().getContextClassLoader() == classLoader;
     }
     
     private static boolean isParent(ClassLoader parent, ClassLoader child) {
@@ -91,7 +261,99 @@ class SchedulerResolvers {
     
     private static final Comparator<SchedulerResolver> SCHEDULER_RESOLVER_BY_PRIORITY = 
         Comparator.comparing(SchedulerResolver::priority).reversed();
-    private static final Cache<ClassLoader, ServiceLoader<SchedulerResolver>> SERVICE_LOADER_BY_CLASS_LOADER = 
-        new Cache<>();
+    private static final WeakIdentityCache<ClassLoader, ResolversHolder> RESOLVERS_BY_CLASS_LOADER = 
+        new WeakIdentityCache<>();
+    private static final ClassValue<AtomicReference<SchedulerResolver[]>> RESOLVERS_BY_OWN_CLASS = 
+        new ClassValue<AtomicReference<SchedulerResolver[]>>() {
+            @Override
+            protected AtomicReference<SchedulerResolver[]> computeValue(Class<?> type) {
+                return new AtomicReference<>();
+            }
+        };
+    
+    private static volatile ResolversChain lastResolversChain;
+    
+    private static final MethodHandle CURRENT_SCHEDULER;
+    private static final MethodHandle CURRENT_NAMED_SCHEDULER;
+    private static final MethodHandle NON_NULL_FIRST;
+    private static final MethodHandle RETURN_FIRST;
+    private static final MethodHandle SUPPLIER_GET;
+    private static final MethodHandle CONTEXT_CLASS_LOADER_IS;
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            CURRENT_SCHEDULER = lookup.findStatic(
+                AsyncMethodExecutor.class, "currentScheduler", 
+                MethodType.methodType(Scheduler.class, Scheduler.class, Object.class, MethodHandles.Lookup.class)
+            );
+            CURRENT_NAMED_SCHEDULER = lookup.findStatic(
+                AsyncMethodExecutor.class, "currentScheduler", 
+                MethodType.methodType(Scheduler.class, Scheduler.class, Object.class, MethodHandles.Lookup.class, String.class)
+            );
+            NON_NULL_FIRST = MethodHandles.dropArguments(
+                lookup.findStatic(Objects.class, "nonNull", MethodType.methodType(boolean.class, Object.class))
+                      .asType(MethodType.methodType(boolean.class, Scheduler.class)),
+                1, Object.class
+            );
+            CONTEXT_CLASS_LOADER_IS = lookup.findStatic(
+                SchedulerResolvers.class, "isContextClassLoader", MethodType.methodType(boolean.class, ClassLoader.class)
+            );
+            SUPPLIER_GET = lookup.findVirtual(Supplier.class, "get", MethodType.methodType(Object.class))
+                                 .asType(MethodType.methodType(Scheduler.class, Supplier.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+        RETURN_FIRST = MethodHandles.dropArguments(MethodHandles.identity(Scheduler.class), 1, Object.class);
+    }
+    
+    static final class ResolversChain {
+        // Neither the class loader nor the resolvers (that may be defined by this class loader) 
+        // are strongly reachable via the static field, see ResolversHolder
+        final WeakReference<ClassLoader> classLoader;
+        final ResolversHolder resolvers;
+        
+        ResolversChain(ClassLoader classLoader, ResolversHolder resolvers) {
+            this.classLoader = new WeakReference<>(classLoader);
+            this.resolvers = resolvers;
+        }
+    }
+    
+    /**
+     * Value of the cache per class loader. Resolvers are referenced strongly by the holder 
+     * only when all of them are defined by the parent class loaders; otherwise they are 
+     * reachable only via the {@link ClassValue} of the resolver class defined by the 
+     * class loader itself, so the cache entry does not pin its own weak key.
+     */
+    static abstract class ResolversHolder {
+        abstract SchedulerResolver[] get();
+    }
+    
+    static final class StrongResolvers extends ResolversHolder {
+        private final SchedulerResolver[] resolvers;
+        
+        StrongResolvers(SchedulerResolver[] resolvers) {
+            this.resolvers = resolvers;
+        }
+        
+        @Override
+        SchedulerResolver[] get() {
+            return resolvers;
+        }
+    }
+    
+    static final class ClassBoundResolvers extends ResolversHolder {
+        private final WeakReference<Class<?>> resolverClass;
+        
+        ClassBoundResolvers(Class<?> resolverClass) {
+            this.resolverClass = new WeakReference<>(resolverClass);
+        }
+        
+        @Override
+        SchedulerResolver[] get() {
+            // The class is alive as long as its class loader (i.e. the cache key) is alive
+            Class<?> clazz = resolverClass.get();
+            return null == clazz ? null : RESOLVERS_BY_OWN_CLASS.get(clazz).get();
+        }
+    }
 
 }
@@ -26,7 +26,9 @@ package net.tascalate.async.sequence;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
@@ -100,6 +102,46 @@ public class CompletionSequence<T, F extends CompletionStage<T>> implements Sequ
         }
     }
 
+    @Override
+    public List<F> nextBatch(int maxCount) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("Max count must be positive: " + maxCount);
+        }
+        F first = next();
+        if (null == first) {
+            return Collections.emptyList();
+        }
+        List<F> result = new ArrayList<>();
+        result.add(first);
+        nextReady(result, maxCount - 1);
+        return result;
+    }
+    
+    /**
+     * Returns up to maxCount elements that are already settled, never suspends
+     * @param maxCount maximum number of elements to return
+     * @return settled elements, possibly empty list
+     */
+    public List<F> nextReady(int maxCount) {
+        List<F> result = new ArrayList<>();
+        nextReady(result, maxCount);
+        return result;
+    }
+    
+    private void nextReady(List<F> result, int maxCount) {
+        if (maxCount <= 0 || remaining.get() < 0) {
+            return;
+        }
+        int limit = result.size() + maxCount;
+        // Sequence of settled values (see next()), doesn't suspend
+        for (F resolvedValue; result.size() < limit && null != (resolvedValue = current.next());) {
+            result.add(resolvedValue);
+        }
+        if (result.size() < limit) {
+            settledPromises.drainTo(result, limit - result.size());
+        }
+    }
+
     @Override
     public void close() {
         remaining.set(Integer.MIN_VALUE);
@@ -24,7 +24,9 @@
  */
 package net.tascalate.async.sequence;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Stream;
 
@@ -51,6 +53,8 @@ public class OrderedSequence<T> implements Sequence<T> {
         
     };
 
+    private static final int DEFAULT_BATCH_CAPACITY = 16;
+    
     private final Iterator<? extends T> delegate;
     
     protected OrderedSequence(Iterator<? extends T> delegate) {
@@ -70,6 +74,19 @@ public class OrderedSequence<T> implements Sequence<T> {
         }
     }
 
+    @Override
+    public List<T> nextBatch(int maxCount) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("Max count must be positive: " + maxCount);
+        }
+        // Elements are available right away, so no suspension at all
+        List<T> result = new ArrayList<>(Math.min(maxCount, DEFAULT_BATCH_CAPACITY));
+        for (T element; result.size() < maxCount && null != (element = next());) {
+            result.add(element);
+        }
+        return result;
+    }
+
     @Override
     public void close() {
     }    
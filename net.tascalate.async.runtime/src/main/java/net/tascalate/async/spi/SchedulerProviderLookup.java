@@ -24,25 +24,36 @@
  */
 package net.tascalate.async.spi;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
 import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleInfo;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import net.tascalate.async.Scheduler;
 import net.tascalate.async.SchedulerProvider;
-import net.tascalate.async.util.Cache;
+import net.tascalate.async.util.ClassCache;
 
 public class SchedulerProviderLookup {
     
@@ -50,11 +61,13 @@ public class SchedulerProviderLookup {
         abstract protected boolean isVisibleTo(Class<?> subClass);
         
         final protected static boolean isVisibleTo(Class<?> subClass, Member member) {
-            Class<?> declaringClass = member.getDeclaringClass();
+            return isVisibleTo(subClass, member.getDeclaringClass(), member.getModifiers());
+        }
+        
+        final protected static boolean isVisibleTo(Class<?> subClass, Class<?> declaringClass, int modifiers) {
             if (!declaringClass.isAssignableFrom(subClass)) {
                 return false;
             }
-            int modifiers = member.getModifiers();
             if (0 != (modifiers & (Modifier.PUBLIC | Modifier.PROTECTED))) {
                 return true;
             } else {
@@ -80,7 +93,14 @@ public class SchedulerProviderLookup {
             } catch (Throwable ex) {
                 throw new RuntimeException(ex);
             }
-        }        
+        }
+        
+        /**
+         * @return handle of type (Object)Scheduler
+         */
+        public MethodHandle asMethodHandle() {
+            return READ_INSTANCE.bindTo(this);
+        }
     }
     
     abstract public static class ClassAccessor extends Accessor {
@@ -93,7 +113,14 @@ public class SchedulerProviderLookup {
             } catch (Throwable ex) {
                 throw new RuntimeException(ex);
             }
-        }        
+        }
+        
+        /**
+         * @return handle of type ()Scheduler
+         */
+        public MethodHandle asMethodHandle() {
+            return READ_CLASS.bindTo(this);
+        }
     }
     
     static final class ReadClassField extends ClassAccessor {
@@ -102,7 +129,7 @@ public class SchedulerProviderLookup {
         
         ReadClassField(Field field, MethodHandles.Lookup ownerClassLookup) throws IllegalAccessException {
             this.field = field;
-            this.getter = ownerClassLookup.unreflectGetter(field);
+            this.getter = ownerClassLookup.unreflectGetter(field).asType(CLASS_READER_TYPE);
         }
         
         @Override
@@ -112,7 +139,12 @@ public class SchedulerProviderLookup {
         
         @Override
         protected final Object doRead() throws Throwable {
-            return getter.invoke();
+            return (Scheduler)getter.invokeExact();
+        }
+        
+        @Override
+        public MethodHandle asMethodHandle() {
+            return getter;
         }
         
         @Override
@@ -127,7 +159,7 @@ public class SchedulerProviderLookup {
         
         ReadInstanceField(Field field, MethodHandles.Lookup ownerClassLookup) throws IllegalAccessException {
             this.field = field;
-            this.getter = ownerClassLookup.unreflectGetter(field);
+            this.getter = ownerClassLookup.unreflectGetter(field).asType(INSTANCE_READER_TYPE);
         }
         
         @Override
@@ -137,7 +169,12 @@ public class SchedulerProviderLookup {
         
         @Override
         protected final Object doRead(Object target) throws Throwable {
-            return getter.invoke(target);
+            return (Scheduler)getter.invokeExact(target);
+        }
+        
+        @Override
+        public MethodHandle asMethodHandle() {
+            return getter;
         }
         
         @Override
@@ -149,10 +186,17 @@ public class SchedulerProviderLookup {
     static final class InvokeClassGetter extends ClassAccessor {
         final private Method method;
         final private MethodHandle getter;
+        final private Supplier<Scheduler> reader;
         
         InvokeClassGetter(Method method, MethodHandles.Lookup ownerClassLookup) throws IllegalAccessException {
             this.method = method;
-            this.getter = ownerClassLookup.unreflect(method);
+            MethodHandle getter = ownerClassLookup.unreflect(method);
+            this.reader = spinReader(
+                ownerClassLookup, method, getter, Supplier.class, "get", 
+                MethodType.methodType(Object.class), 
+                MethodType.methodType(method.getReturnType())
+            );
+            this.getter = getter.asType(CLASS_READER_TYPE);
         }
         
         @Override
@@ -162,7 +206,12 @@ public class SchedulerProviderLookup {
         
         @Override
         protected final Object doRead() throws Throwable {
-            return getter.invoke();
+            return null != reader ? reader.get() : (Scheduler)getter.invokeExact();
+        }
+        
+        @Override
+        public MethodHandle asMethodHandle() {
+            return getter;
         }
         
         @Override
@@ -174,10 +223,17 @@ public class SchedulerProviderLookup {
     static final class InvokeInstanceGetter extends InstanceAccessor {
         final private Method method;
         final private MethodHandle getter;
+        final private Function<Object, Scheduler> reader;
         
         InvokeInstanceGetter(Method method, MethodHandles.Lookup ownerClassLookup) throws IllegalAccessException {
             this.method = method;
-            this.getter = ownerClassLookup.unreflect(method);
+            MethodHandle getter = ownerClassLookup.unreflect(method);
+            this.reader = spinReader(
+                ownerClassLookup, method, getter, Function.class, "apply", 
+                MethodType.methodType(Object.class, Object.class), 
+                MethodType.methodType(method.getReturnType(), method.getDeclaringClass())
+            );
+            this.getter = getter.asType(INSTANCE_READER_TYPE);
         }
         
         @Override
@@ -187,7 +243,12 @@ public class SchedulerProviderLookup {
         
         @Override
         protected final Object doRead(Object target) throws Throwable {
-            return getter.invoke(target);
+            return null != reader ? reader.apply(target) : (Scheduler)getter.invokeExact(target);
+        }
+        
+        @Override
+        public MethodHandle asMethodHandle() {
+            return getter;
         }
         
         @Override
@@ -196,6 +257,187 @@ public class SchedulerProviderLookup {
         }        
     }
     
+    /**
+     * Creates strongly-typed functional interface implementation that invokes the getter 
+     * directly, or returns null if the getter is not accessible to the class generated 
+     * by {@link LambdaMetafactory} (then the getter method handle should be used).
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T spinReader(MethodHandles.Lookup ownerClassLookup, 
+                            Method method, MethodHandle getter, 
+                            Class<? super T> functionalInterface, String functionalMethodName, 
+                            MethodType erasedType, MethodType instantiatedType) {
+        
+        if (!isDirectlyAccessible(ownerClassLookup, method)) {
+            return null;
+        }
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                ownerClassLookup, functionalMethodName, 
+                MethodType.methodType(functionalInterface), erasedType, 
+                getter, instantiatedType
+            );
+            return (T)site.getTarget().invoke();
+        } catch (LambdaConversionException | LinkageError | SecurityException ex) {
+            // Not linkable or not accessible - fallback to method handle
+            return null;
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    private static boolean isDirectlyAccessible(MethodHandles.Lookup ownerClassLookup, Method method) {
+        if ((ownerClassLookup.lookupModes() & MethodHandles.Lookup.PRIVATE) == 0) {
+            return false;
+        }
+        Class<?> lookupClass = ownerClassLookup.lookupClass();
+        Class<?> declaringClass = method.getDeclaringClass();
+        boolean samePackage = 
+            lookupClass.getClassLoader() == declaringClass.getClassLoader() &&
+            Objects.equals(lookupClass.getPackage(), declaringClass.getPackage());
+        
+        if (!Modifier.isPublic(declaringClass.getModifiers()) && !samePackage) {
+            return false;
+        }
+        int modifiers = method.getModifiers();
+        if (Modifier.isPublic(modifiers)) {
+            return true;
+        } else if (Modifier.isPrivate(modifiers)) {
+            return lookupClass == declaringClass;
+        } else {
+            // Protected members are accessible directly only within the same package
+            return samePackage;
+        }
+    }
+    
+    static final class LinkedClassAccessor extends ClassAccessor {
+        final private MethodHandleInfo member;
+        final private MethodHandle getter;
+        
+        LinkedClassAccessor(MethodHandleInfo member, MethodHandle getter) {
+            this.member = member;
+            this.getter = getter.asType(CLASS_READER_TYPE);
+        }
+        
+        @Override
+        protected final boolean isVisibleTo(Class<?> subClass) {
+            return isVisibleTo(subClass, member.getDeclaringClass(), member.getModifiers());
+        }
+        
+        @Override
+        protected final Object doRead() throws Throwable {
+            return (Scheduler)getter.invokeExact();
+        }
+        
+        @Override
+        public MethodHandle asMethodHandle() {
+            return getter;
+        }
+        
+        @Override
+        public String toString() {
+            return "LINKED: {" + member.toString() + "}";
+        }
+    }
+    
+    static final class LinkedInstanceAccessor extends InstanceAccessor {
+        final private MethodHandleInfo member;
+        final private MethodHandle getter;
+        
+        LinkedInstanceAccessor(MethodHandleInfo member, MethodHandle getter) {
+            this.member = member;
+            this.getter = getter.asType(INSTANCE_READER_TYPE);
+        }
+        
+        @Override
+        protected final boolean isVisibleTo(Class<?> subClass) {
+            return isVisibleTo(subClass, member.getDeclaringClass(), member.getModifiers());
+        }
+        
+        @Override
+        protected final Object doRead(Object target) throws Throwable {
+            return (Scheduler)getter.invokeExact(target);
+        }
+        
+        @Override
+        public MethodHandle asMethodHandle() {
+            return getter;
+        }
+        
+        @Override
+        public String toString() {
+            return "LINKED: {" + member.toString() + "}";
+        }
+    }
+    
+    static final class DeclaredAccessors {
+        final Accessor instanceAccessor;
+        final Accessor classAccessor;
+        
+        DeclaredAccessors(Accessor instanceAccessor, Accessor classAccessor) {
+            this.instanceAccessor = instanceAccessor;
+            this.classAccessor    = classAccessor;
+        }
+        
+        Accessor get(Kind kind) {
+            return kind == Kind.INSATNCE ? instanceAccessor : classAccessor;
+        }
+    }
+    
+    static final class DeclaredMembers {
+        final List<Field> fields;
+        final List<Method> methods;
+        
+        DeclaredMembers(List<Field> fields, List<Method> methods) {
+            this.fields  = fields;
+            this.methods = methods;
+        }
+    }
+    
+    // Members annotated with @SchedulerProvider, as found via reflection
+    private static final ClassCache<DeclaredMembers> DECLARED_MEMBERS = new ClassCache<>();
+    
+    static DeclaredMembers declaredMembersOf(Class<?> type) {
+        return DECLARED_MEMBERS.get(type, c -> new DeclaredMembers(
+            Stream.of(c.getDeclaredFields())
+                  .filter(SchedulerProviderLookup::isSchedulerProviderField)
+                  .collect(Collectors.toList()),
+            Stream.of(c.getDeclaredMethods())
+                  .filter(SchedulerProviderLookup::isSchedulerProviderGetter)
+                  .collect(Collectors.toList())
+        ));
+    }
+    
+    // Providers declared by classes as detected by the bytecode enhancer 
+    private static final ClassValue<AtomicReference<DeclaredAccessors>> DECLARED_ACCESSORS = 
+        new ClassValue<AtomicReference<DeclaredAccessors>>() {
+            @Override
+            protected AtomicReference<DeclaredAccessors> computeValue(Class<?> type) {
+                return new AtomicReference<>();
+            }
+        };
+    
+    private static final MethodType CLASS_READER_TYPE = MethodType.methodType(Scheduler.class);
+    private static final MethodType INSTANCE_READER_TYPE = MethodType.methodType(Scheduler.class, Object.class);
+    
+    private static final MethodHandle READ_CLASS;
+    private static final MethodHandle READ_INSTANCE;
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            READ_CLASS = lookup.findVirtual(
+                ClassAccessor.class, "read", MethodType.methodType(Scheduler.class)
+            );
+            READ_INSTANCE = lookup.findVirtual(
+                InstanceAccessor.class, "read", MethodType.methodType(Scheduler.class, Object.class)
+            );
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+    
     static final Accessor NO_ACCESSOR = new Accessor() {
         protected boolean isVisibleTo(Class<?> subClass) {
             return false;
@@ -242,8 +484,8 @@ public class SchedulerProviderLookup {
         }
     }
     
-    private final Cache<Class<?>, Accessor> instanceAccessorsCache = new Cache<>();
-    private final Cache<Class<?>, Accessor> classAccessorsCache = new Cache<>();
+    private final ClassCache<Accessor> instanceAccessorsCache = new ClassCache<>();
+    private final ClassCache<Accessor> classAccessorsCache = new ClassCache<>();
     
     private final boolean inspectSuperclasses;
     private final boolean inspectInterfaces;
@@ -257,6 +499,74 @@ public class SchedulerProviderLookup {
         this.superClassPriority  = superClassPriority;
     }
     
+    /**
+     * Scans the class, its superclasses and interfaces for the declared 
+     * {@link SchedulerProvider} members in advance, so the first resolution 
+     * of the scheduler for this class doesn't pay for reflection.
+     * 
+     * @param type class to scan
+     * @return number of provider members found
+     */
+    public static int prescan(Class<?> type) {
+        int result = 0;
+        Set<Class<?>> visited = new HashSet<>();
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pending.add(type);
+        while (!pending.isEmpty()) {
+            Class<?> c = pending.poll();
+            if (Object.class == c || !visited.add(c)) {
+                continue;
+            }
+            DeclaredMembers members = declaredMembersOf(c);
+            result += members.fields.size() + members.methods.size();
+            if (null != c.getSuperclass()) {
+                pending.add(c.getSuperclass());
+            }
+            pending.addAll(Arrays.asList(c.getInterfaces()));
+        }
+        return result;
+    }
+    
+    /**
+     * Registers {@link SchedulerProvider} members declared by the class, so they are 
+     * not looked up via reflection. The complete list of members must be supplied 
+     * (typically by the bytecode enhancer), empty list means that class has no providers. 
+     * 
+     * @param ownerClassLookup full-privilege lookup of the declaring class
+     * @param providers direct method handles of the fields / getters
+     */
+    public static void declareProviders(MethodHandles.Lookup ownerClassLookup, MethodHandle... providers) {
+        Accessor instanceAccessor = null;
+        Accessor classAccessor = null;
+        for (MethodHandle provider : providers) {
+            if (!Scheduler.class.isAssignableFrom(provider.type().returnType())) {
+                continue;
+            }
+            MethodHandleInfo member = ownerClassLookup.revealDirect(provider);
+            switch (member.getReferenceKind()) {
+                case MethodHandleInfo.REF_getStatic:
+                case MethodHandleInfo.REF_invokeStatic:
+                    if (null != classAccessor) {
+                        // Ambiguity, let reflection-based lookup report an error
+                        return;
+                    }
+                    classAccessor = new LinkedClassAccessor(member, provider);
+                    break;
+                default:
+                    if (null != instanceAccessor) {
+                        return;
+                    }
+                    instanceAccessor = new LinkedInstanceAccessor(member, provider);
+            }
+        }
+        DECLARED_ACCESSORS.get(ownerClassLookup.lookupClass()).set(
+            new DeclaredAccessors(
+                null != instanceAccessor ? instanceAccessor : NO_ACCESSOR, 
+                null != classAccessor ? classAccessor : NO_ACCESSOR
+            )
+        );
+    }
+    
     public InstanceAccessor getInstanceAccessor(MethodHandles.Lookup ownerClassLookup) {
         Accessor result = getAccessor(ownerClassLookup, ownerClassLookup.lookupClass(), instanceAccessorsCache, Kind.INSATNCE, new HashSet<>());
         return (InstanceAccessor)result;
@@ -268,7 +578,7 @@ public class SchedulerProviderLookup {
     }
 
     
-    protected Accessor getAccessor(MethodHandles.Lookup ownerClassLookup, Class<?> targetClass, Cache<Class<?>, Accessor> cache, Kind kind, Set<Class<?>> visitedInterfaces) {
+    protected Accessor getAccessor(MethodHandles.Lookup ownerClassLookup, Class<?> targetClass, ClassCache<Accessor> cache, Kind kind, Set<Class<?>> visitedInterfaces) {
         Accessor result = cache.get(
             targetClass,
             c -> {
@@ -279,7 +589,7 @@ public class SchedulerProviderLookup {
         return result == NO_ACCESSOR ? null : result;
     }
     
-    protected Accessor findAccessor(MethodHandles.Lookup ownerClassLookup, Class<?> targetClass, Cache<Class<?>, Accessor> cache, Kind kind, Set<Class<?>> visitedInterfaces) {
+    protected Accessor findAccessor(MethodHandles.Lookup ownerClassLookup, Class<?> targetClass, ClassCache<Accessor> cache, Kind kind, Set<Class<?>> visitedInterfaces) {
         Accessor accessor = findDeclaredAccessor(ownerClassLookup, targetClass, kind);
         if (null != accessor) {
             return accessor;
@@ -339,8 +649,20 @@ public class SchedulerProviderLookup {
     }
     
     protected Accessor findDeclaredAccessor(MethodHandles.Lookup ownerClassLookup, Class<?> targetClass, Kind kind) {
-        List<Field> ownProviderFields = Stream.of(targetClass.getDeclaredFields())
-            .filter(SchedulerProviderLookup::isSchedulerProviderField)
+        DeclaredAccessors declared = DECLARED_ACCESSORS.get(targetClass).get();
+        if (null != declared) {
+            Accessor accessor = declared.get(kind);
+            if (NO_ACCESSOR == accessor) {
+                return null;
+            } else if (!checkVisibility || accessor.isVisibleTo(ownerClassLookup.lookupClass())) {
+                return accessor;
+            } else {
+                return null;
+            }
+        }
+        
+        DeclaredMembers members = declaredMembersOf(targetClass);
+        List<Field> ownProviderFields = members.fields.stream()
             .filter(kind::accept)
             //.limit(2)
             .collect(Collectors.toList());
@@ -353,8 +675,7 @@ public class SchedulerProviderLookup {
             );
         }
         
-        List<Method> ownProviderMethods = Stream.of(targetClass.getDeclaredMethods())
-            .filter(SchedulerProviderLookup::isSchedulerProviderGetter)
+        List<Method> ownProviderMethods = members.methods.stream()
             .filter(kind::accept)
             //.limit(2)
             .collect(Collectors.toList());
@@ -0,0 +1,235 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.spi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.tascalate.async.core.AsyncMethodExecutor;
+
+/**
+ * Pre-scans classes of the given packages for {@link net.tascalate.async.SchedulerProvider}
+ * members in parallel, so the metadata is cached before the first call to async methods.
+ * <p>
+ * Besides the reflective metadata, every {@link SchedulerResolver} of the class loader
+ * builds its own caches for the class via {@link SchedulerResolver#prepare(MethodHandles.Lookup)}
+ * (for ex., accessors of the provider members). This requires the private lookup of the class
+ * that is available since Java 9 only, and only for packages open to this module (all packages
+ * on the class path are). On Java 8, or when the package is not open, only the reflective 
+ * metadata is cached, and resolvers build the rest on the first call.
+ */
+public final class SchedulerProviderWarmUp {
+    private static final Method PRIVATE_LOOKUP_IN;
+    private static final Method GET_MODULE;
+    private static final Method ADD_READS;
+    static {
+        Method privateLookupIn = null;
+        Method getModule = null;
+        Method addReads = null;
+        try {
+            privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+            getModule = Class.class.getMethod("getModule");
+            addReads  = getModule.getReturnType().getMethod("addReads", getModule.getReturnType());
+        } catch (NoSuchMethodException ex) {
+            // Java 8
+            privateLookupIn = null;
+        }
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        GET_MODULE = getModule;
+        ADD_READS  = addReads;
+    }
+    
+    private SchedulerProviderWarmUp() {}
+
+    public static Result run(ClassLoader classLoader, String... packageNames) {
+        return run(classLoader, Stream.of(packageNames).collect(Collectors.toList()));
+    }
+
+    public static Result run(ClassLoader classLoader, Collection<String> packageNames) {
+        long start = System.nanoTime();
+        Set<String> classNames = new HashSet<>();
+        for (String packageName : packageNames) {
+            classNames.addAll(classNamesOf(classLoader, packageName.trim()));
+        }
+        AtomicInteger providers = new AtomicInteger();
+        AtomicInteger prepared  = new AtomicInteger();
+        AtomicInteger failures  = new AtomicInteger();
+        classNames.parallelStream().forEach(className -> {
+            try {
+                Class<?> type = Class.forName(className, false, classLoader);
+                providers.addAndGet(SchedulerProviderLookup.prescan(type));
+                if (type.isAnnotation()) {
+                    return;
+                }
+                MethodHandles.Lookup ownerClassLookup = privateLookupOf(type);
+                if (null != ownerClassLookup) {
+                    AsyncMethodExecutor.prepareCurrentScheduler(ownerClassLookup);
+                    prepared.incrementAndGet();
+                }
+            } catch (ClassNotFoundException | LinkageError | RuntimeException ex) {
+                // Including ambiguous providers, reported on the first call as well
+                failures.incrementAndGet();
+            }
+        });
+        return new Result(
+            classNames.size(), providers.get(), prepared.get(), failures.get(), 
+            Duration.ofNanos(System.nanoTime() - start)
+        );
+    }
+    
+    private static MethodHandles.Lookup privateLookupOf(Class<?> type) {
+        if (null == PRIVATE_LOOKUP_IN) {
+            return null;
+        }
+        try {
+            // Named module of the runtime must read the module of the class
+            ADD_READS.invoke(GET_MODULE.invoke(SchedulerProviderWarmUp.class), GET_MODULE.invoke(type));
+            return (MethodHandles.Lookup)PRIVATE_LOOKUP_IN.invoke(null, type, MethodHandles.lookup());
+        } catch (InvocationTargetException | IllegalAccessException ex) {
+            // Package is not open to this module
+            return null;
+        }
+    }
+
+    private static Set<String> classNamesOf(ClassLoader classLoader, String packageName) {
+        String packagePath = packageName.replace('.', '/');
+        Set<String> result = new HashSet<>();
+        try {
+            Enumeration<URL> roots = classLoader.getResources(packagePath);
+            while (roots.hasMoreElements()) {
+                URL root = roots.nextElement();
+                if ("file".equals(root.getProtocol())) {
+                    Path directory = Paths.get(root.toURI());
+                    Path base = directory;
+                    for (int i = packagePath.split("/").length; i > 0; i--) {
+                        base = base.getParent();
+                    }
+                    Path classPathRoot = base;
+                    try (Stream<Path> files = Files.walk(directory)) {
+                        files.map(f -> classPathRoot.relativize(f).toString().replace(File.separatorChar, '/'))
+                             .filter(SchedulerProviderWarmUp::isClassFile)
+                             .map(SchedulerProviderWarmUp::toClassName)
+                             .forEach(result::add);
+                    }
+                } else {
+                    URLConnection connection = root.openConnection();
+                    if (connection instanceof JarURLConnection) {
+                        JarFile jar = ((JarURLConnection)connection).getJarFile();
+                        String prefix = packagePath + "/";
+                        for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+                            String name = entries.nextElement().getName();
+                            if (name.startsWith(prefix) && isClassFile(name)) {
+                                result.add(toClassName(name));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (URISyntaxException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+        return result;
+    }
+
+    private static boolean isClassFile(String resourceName) {
+        return resourceName.endsWith(".class") &&
+              !resourceName.endsWith("module-info.class") &&
+              !resourceName.endsWith("package-info.class");
+    }
+
+    private static String toClassName(String resourceName) {
+        return resourceName.substring(0, resourceName.length() - ".class".length()).replace('/', '.');
+    }
+
+    public static final class Result {
+        private final int classes;
+        private final int providers;
+        private final int prepared;
+        private final int failures;
+        private final Duration duration;
+
+        Result(int classes, int providers, int prepared, int failures, Duration duration) {
+            this.classes   = classes;
+            this.providers = providers;
+            this.prepared  = prepared;
+            this.failures  = failures;
+            this.duration  = duration;
+        }
+
+        public int classes() {
+            return classes;
+        }
+
+        public int providers() {
+            return providers;
+        }
+
+        /**
+         * @return number of classes that resolvers were prepared for, zero on Java 8
+         */
+        public int prepared() {
+            return prepared;
+        }
+
+        public int failures() {
+            return failures;
+        }
+
+        public Duration duration() {
+            return duration;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%s[classes=%d, providers=%d, prepared=%d, failures=%d, duration=%dms]",
+                getClass().getSimpleName(), classes, providers, prepared, failures, duration.toMillis()
+            );
+        }
+    }
+}
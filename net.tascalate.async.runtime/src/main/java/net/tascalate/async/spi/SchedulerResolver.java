@@ -24,7 +24,9 @@
  */
 package net.tascalate.async.spi;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.SwitchPoint;
 
 import net.tascalate.async.Scheduler;
 
@@ -33,4 +35,37 @@ public interface SchedulerResolver {
     int priority();
     
     Scheduler resolve(Object owner, MethodHandles.Lookup ownerClassLookup);
+    
+    /**
+     * Used when linking invokedynamic call sites of the async methods declared 
+     * in the class described by ownerClassLookup. Returned {@link SwitchPoint} 
+     * must stay valid as long as this resolver is guaranteed to resolve nothing 
+     * for the class, so it may be skipped by the call site.
+     * 
+     * @return guard of inactivity or null if resolver may be active
+     */
+    default SwitchPoint inactivityGuard(MethodHandles.Lookup ownerClassLookup, boolean isStatic) {
+        return null;
+    }
+    
+    /**
+     * Used when linking invokedynamic call sites of the async methods declared 
+     * in the class described by ownerClassLookup. Returned {@link MethodHandle} 
+     * of type (Object owner)Scheduler must be equivalent to
+     * {@link #resolve(Object, java.lang.invoke.MethodHandles.Lookup)}; 
+     * the owner is always null for static methods.
+     * 
+     * @return specialized resolution or null if resolution depends on the call context 
+     */
+    default MethodHandle link(MethodHandles.Lookup ownerClassLookup, boolean isStatic) {
+        return null;
+    }
+    
+    /**
+     * Used by {@link SchedulerProviderWarmUp} to build metadata that is necessary to resolve 
+     * schedulers for the class described by ownerClassLookup in advance, before the first 
+     * call of async methods declared in the class.
+     */
+    default void prepare(MethodHandles.Lookup ownerClassLookup) {
+    }
 }
@@ -0,0 +1,71 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.util;
+
+import java.util.function.Function;
+
+/**
+ * Cache with {@link Class} keys backed by {@link ClassValue}: values are
+ * bound to the lifecycle of the key class, reads are lock-free and do not
+ * allocate once the value is computed.
+ */
+public class ClassCache<V> {
+    private final ClassValue<Holder<V>> holders = new ClassValue<Holder<V>>() {
+        @Override
+        protected Holder<V> computeValue(Class<?> type) {
+            return new Holder<>();
+        }
+    };
+
+    public V get(Class<?> key, Function<? super Class<?>, ? extends V> producer) {
+        Holder<V> holder = holders.get(key);
+        V value = holder.value;
+        if (null != value) {
+            return value;
+        }
+        synchronized (holder) {
+            // Double-check after getting mutex
+            value = holder.value;
+            if (null == value) {
+                value = producer.apply(key);
+                holder.value = value;
+            }
+        }
+        return value;
+    }
+
+    public V remove(Class<?> key) {
+        Holder<V> holder = holders.get(key);
+        synchronized (holder) {
+            V value = holder.value;
+            holder.value = null;
+            return value;
+        }
+    }
+
+    static final class Holder<V> {
+        volatile V value;
+    }
+}
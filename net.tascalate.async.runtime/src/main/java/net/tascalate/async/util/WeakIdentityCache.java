@@ -0,0 +1,158 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Cache with weakly referenced keys compared by identity, intended for a small
+ * number of long-living keys like {@link ClassLoader}-s. Entries are split by
+ * stripes, every stripe is a copy-on-write array, so reads are lock-free and
+ * do not allocate; writes are synchronized per stripe.
+ * <p>
+ * Values are referenced strongly, so a value must not refer to its own key, neither 
+ * directly nor via classes defined by the key (when the key is a {@link ClassLoader}),
+ * otherwise the entry is never expunged.
+ */
+public class WeakIdentityCache<K, V> {
+    private static final int STRIPES_COUNT = 16;
+
+    private final Stripe<K, V>[] stripes;
+    private final ReferenceQueue<K> queue = new ReferenceQueue<>();
+
+    public WeakIdentityCache() {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Stripe<K, V>[] stripes = new Stripe[STRIPES_COUNT];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripes = stripes;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> producer) {
+        int hash = System.identityHashCode(key);
+        Stripe<K, V> stripe = stripeOf(hash);
+        V value = stripe.find(key, hash);
+        if (null != value) {
+            return value;
+        }
+        expungeStaleEntries();
+        return stripe.computeIfAbsent(key, hash, producer, queue);
+    }
+
+    public V remove(K key) {
+        int hash = System.identityHashCode(key);
+        return stripeOf(hash).remove(key, hash);
+    }
+
+    private Stripe<K, V> stripeOf(int hash) {
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES_COUNT - 1)];
+    }
+
+    private void expungeStaleEntries() {
+        for (Reference<? extends K> ref; (ref = queue.poll()) != null;) {
+            @SuppressWarnings("unchecked")
+            Entry<K, V> entry = (Entry<K, V>)ref;
+            stripeOf(entry.hash).expunge(entry);
+        }
+    }
+
+    static final class Stripe<K, V> {
+        private volatile Entry<K, V>[] entries = newEntries(0);
+
+        V find(K key, int hash) {
+            Entry<K, V>[] snapshot = entries;
+            for (int i = 0; i < snapshot.length; i++) {
+                Entry<K, V> entry = snapshot[i];
+                if (entry.hash == hash && entry.get() == key) {
+                    return entry.value;
+                }
+            }
+            return null;
+        }
+
+        synchronized V computeIfAbsent(K key, int hash, Function<? super K, ? extends V> producer, ReferenceQueue<K> queue) {
+            // Double-check after getting mutex
+            V value = find(key, hash);
+            if (null == value) {
+                value = producer.apply(key);
+                Entry<K, V>[] snapshot = entries;
+                Entry<K, V>[] updated = Arrays.copyOf(snapshot, snapshot.length + 1);
+                updated[snapshot.length] = new Entry<>(key, hash, value, queue);
+                entries = updated;
+            }
+            return value;
+        }
+
+        synchronized V remove(K key, int hash) {
+            Entry<K, V>[] snapshot = entries;
+            for (int i = 0; i < snapshot.length; i++) {
+                Entry<K, V> entry = snapshot[i];
+                if (entry.hash == hash && entry.get() == key) {
+                    entries = without(snapshot, i);
+                    return entry.value;
+                }
+            }
+            return null;
+        }
+
+        synchronized void expunge(Entry<K, V> staleEntry) {
+            Entry<K, V>[] snapshot = entries;
+            for (int i = 0; i < snapshot.length; i++) {
+                if (snapshot[i] == staleEntry) {
+                    entries = without(snapshot, i);
+                    return;
+                }
+            }
+        }
+
+        private static <K, V> Entry<K, V>[] without(Entry<K, V>[] entries, int idx) {
+            Entry<K, V>[] result = newEntries(entries.length - 1);
+            System.arraycopy(entries, 0, result, 0, idx);
+            System.arraycopy(entries, idx + 1, result, idx, entries.length - idx - 1);
+            return result;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <K, V> Entry<K, V>[] newEntries(int size) {
+            return new Entry[size];
+        }
+    }
+
+    static final class Entry<K, V> extends WeakReference<K> {
+        final int hash;
+        final V value;
+
+        Entry(K key, int hash, V value, ReferenceQueue<K> queue) {
+            super(key, queue);
+            this.hash  = hash;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * ﻿Copyright 2015-2021 Valery Silaev (http://vsilaev.com)
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.tascalate.async.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Races of {@link Handoff#complete(Object, Throwable)}, {@link Handoff#park} and {@link Handoff#cancel()} 
+ * between threads. Continuations are not available without instrumentation, so the awaiting side 
+ * always parks a {@link Receiver} that blocks the thread until resumed: the same protocol the 
+ * {@link AsyncMethodExecutor} uses once the continuation is suspended.
+ */
+public class HandoffTest {
+    private static final long TIMEOUT_SECONDS = 10;
+    
+    @Test
+    public void outcomeIsHandedOffOnce() throws Throwable {
+        Handoff<String> handoff = new Handoff<>();
+        assertTrue(handoff.complete("A", null));
+        assertFalse("Previous outcome is not taken yet", handoff.complete("B", null));
+        assertEquals("A", receive(handoff));
+        assertTrue(handoff.complete("C", null));
+        assertEquals("C", receive(handoff));
+    }
+    
+    @Test
+    public void cancelResumesParkedSide() throws Exception {
+        Handoff<String> handoff = new Handoff<>();
+        AtomicReference<Object> received = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                received.set(receive(handoff));
+            } catch (Throwable ex) {
+                received.set(ex);
+            }
+        });
+        consumer.start();
+        while (!handoff.toString().contains("parked")) {
+            Thread.yield();
+        }
+        assertTrue(handoff.cancel());
+        consumer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertSame(CloseSignal.INSTANCE, received.get());
+    }
+    
+    @Test(timeout = 60_000)
+    public void producerAndConsumerExchangeAllElementsInOrder() throws Exception {
+        // Same pair of cells as in the LazyGenerator
+        Handoff<Integer> values = new Handoff<>();
+        Handoff<Object> replies = new Handoff<>();
+        int count = 1_000_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        
+        Thread producer = new Thread(guarded(failure, () -> {
+            for (int i = 0; i < count; i++) {
+                assertTrue(values.complete(i, null));
+                assertNull(receive(replies));
+            }
+        }));
+        Thread consumer = new Thread(guarded(failure, () -> {
+            for (int i = 0; i < count; i++) {
+                assertEquals(Integer.valueOf(i), receive(values));
+                assertTrue(replies.complete(null, null));
+            }
+        }));
+        producer.start();
+        consumer.start();
+        producer.join();
+        consumer.join();
+        assertNull(failure.get());
+    }
+    
+    @Test(timeout = 60_000)
+    public void closeFromThirdThreadStopsBothSides() throws Exception {
+        for (int round = 0; round < 2000; round++) {
+            Handoff<Integer> values = new Handoff<>();
+            Handoff<Object> replies = new Handoff<>();
+            AtomicBoolean closed = new AtomicBoolean();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            
+            Thread producer = new Thread(guarded(failure, () -> {
+                for (int i = 0; !closed.get(); i++) {
+                    if (!values.complete(i, null)) {
+                        // Only close may leave outcome untaken
+                        assertTrue(closed.get());
+                        return;
+                    }
+                    if (CloseSignal.INSTANCE == receiveOutcome(replies)) {
+                        return;
+                    }
+                }
+            }));
+            Thread consumer = new Thread(guarded(failure, () -> {
+                for (int i = 0; !closed.get(); i++) {
+                    Object value = receiveOutcome(values);
+                    if (CloseSignal.INSTANCE == value) {
+                        return;
+                    }
+                    assertEquals(Integer.valueOf(i), value);
+                    if (!replies.complete(null, null)) {
+                        assertTrue(closed.get());
+                        return;
+                    }
+                }
+            }));
+            producer.start();
+            consumer.start();
+            
+            // Close at random point of the exchange
+            long deadline = System.nanoTime() + ThreadLocalRandom.current().nextInt(200_000);
+            while (System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            closed.set(true);
+            values.cancel();
+            replies.cancel();
+            
+            producer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            consumer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertFalse("Producer hangs after close in round " + round, producer.isAlive());
+            assertFalse("Consumer hangs after close in round " + round, consumer.isAlive());
+            assertNull(failure.get());
+        }
+    }
+    
+    static <V> V receive(Handoff<V> handoff) throws Throwable {
+        Receiver<V> receiver = park(handoff);
+        if (null != receiver.error) {
+            throw receiver.error;
+        }
+        return receiver.result;
+    }
+    
+    // Either the value or the error as is
+    static Object receiveOutcome(Handoff<?> handoff) throws InterruptedException {
+        Receiver<?> receiver = park(handoff);
+        return null != receiver.error ? receiver.error : receiver.result;
+    }
+    
+    private static <V> Receiver<V> park(Handoff<V> handoff) throws InterruptedException {
+        Receiver<V> receiver = new Receiver<>(EXECUTOR);
+        Semaphore resumed = new Semaphore(0);
+        handoff.park(receiver, resumed::release);
+        if (!resumed.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            fail("Lost wake-up on " + handoff);
+        }
+        return receiver;
+    }
+    
+    private static Runnable guarded(AtomicReference<Throwable> failure, ThrowingRunnable code) {
+        return () -> {
+            try {
+                code.run();
+            } catch (Throwable ex) {
+                failure.compareAndSet(null, ex);
+            }
+        };
+    }
+    
+    interface ThrowingRunnable {
+        void run() throws Throwable;
+    }
+    
+    private static final AsyncMethodExecutor EXECUTOR = new AsyncMethodExecutor();
+    
+    // Records outcome instead of resuming continuation
+    static final class Receiver<V> extends AsyncMethodExecutor.ContinuationResumer<V, Throwable> {
+        V result;
+        Throwable error;
+        
+        Receiver(AsyncMethodExecutor executor) {
+            executor.super(null);
+        }
+        
+        @Override
+        void setup(V result, Throwable error) {
+            this.result = result;
+            this.error = error;
+        }
+    }
+}
@@ -27,6 +27,7 @@ package net.tascalate.async.tools.core;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.createAccessMethodName;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.createInnerClassName;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.createOuterClassMethodArgFieldName;
+import static net.tascalate.async.tools.core.BytecodeIntrospection.fieldsOf;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.getField;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.getMethod;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.getMethodSignature;
@@ -35,17 +36,25 @@ import static net.tascalate.async.tools.core.BytecodeIntrospection.invisibleAnno
 import static net.tascalate.async.tools.core.BytecodeIntrospection.invisibleParameterAnnotationsOf;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.invisibleTypeAnnotationsOf;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.methodsOf;
+import static net.tascalate.async.tools.core.BytecodeIntrospection.schedulerNameOf;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.visibleAnnotationsOf;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.visibleParameterAnnotationsOf;
 import static net.tascalate.async.tools.core.BytecodeIntrospection.visibleTypeAnnotationsOf;
 import static net.tascalate.asmx.Opcodes.*;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -61,10 +70,15 @@ import net.tascalate.asmx.tree.ClassNode;
 import net.tascalate.asmx.tree.FieldInsnNode;
 import net.tascalate.asmx.tree.FieldNode;
 import net.tascalate.asmx.tree.InnerClassNode;
+import net.tascalate.asmx.tree.InsnList;
 import net.tascalate.asmx.tree.InvokeDynamicInsnNode;
+import net.tascalate.asmx.tree.JumpInsnNode;
+import net.tascalate.asmx.tree.LabelNode;
+import net.tascalate.asmx.tree.LdcInsnNode;
 import net.tascalate.asmx.tree.MethodInsnNode;
 import net.tascalate.asmx.tree.MethodNode;
 import net.tascalate.asmx.tree.TypeAnnotationNode;
+import net.tascalate.asmx.tree.VarInsnNode;
 
 abstract public class AbstractAsyncMethodTransformer {
     protected final static Logger log = LoggerFactory.getLogger(AsyncAwaitClassFileGenerator.class);
@@ -87,6 +101,28 @@ abstract public class AbstractAsyncMethodTransformer {
     
     private final static Type SCHEDULER_TYPE             = Type.getObjectType("net/tascalate/async/Scheduler");
     private final static Type SCHEDULER_PROVIDER_TYPE    = Type.getObjectType("net/tascalate/async/SchedulerProvider");
+    
+    private final static Handle CURRENT_SCHEDULER_BOOTSTRAP = new Handle(
+        H_INVOKESTATIC, 
+        ASYNC_METHOD_EXECUTOR_TYPE.getInternalName(), 
+        "bootstrapCurrentScheduler",
+        Type.getMethodDescriptor(
+            Type.getType(CallSite.class), METHOD_HANDLES_LOOKUP_TYPE, STRING_TYPE, Type.getType(MethodType.class),
+            Type.getType(MethodHandle[].class)
+        ),
+        false
+    );
+    
+    private final static Handle NAMED_SCHEDULER_BOOTSTRAP = new Handle(
+        H_INVOKESTATIC, 
+        ASYNC_METHOD_EXECUTOR_TYPE.getInternalName(), 
+        "bootstrapNamedScheduler",
+        Type.getMethodDescriptor(
+            Type.getType(CallSite.class), METHOD_HANDLES_LOOKUP_TYPE, STRING_TYPE, Type.getType(MethodType.class),
+            STRING_TYPE, Type.getType(MethodHandle[].class)
+        ),
+        false
+    );
 
     protected final ClassNode classNode;
     protected final MethodNode originalAsyncMethod;
@@ -95,13 +131,25 @@ abstract public class AbstractAsyncMethodTransformer {
     // MethodNode
     protected final Map<String, MethodNode> accessMethods;
     
+    // Time slice (in microseconds) for preemption checks at loop back-edges, 
+    // non-positive value disables checks 
+    protected final long preemptionTimeSlice;
+    
     protected AbstractAsyncMethodTransformer(ClassNode               classNode, 
                                              MethodNode              originalAsyncMethod,
                                              Map<String, MethodNode> accessMethods) {
+        this(classNode, originalAsyncMethod, accessMethods, 0);
+    }
+    
+    protected AbstractAsyncMethodTransformer(ClassNode               classNode, 
+                                             MethodNode              originalAsyncMethod,
+                                             Map<String, MethodNode> accessMethods,
+                                             long                    preemptionTimeSlice) {
         
         this.classNode = classNode;
         this.originalAsyncMethod = originalAsyncMethod;
         this.accessMethods = accessMethods;
+        this.preemptionTimeSlice = preemptionTimeSlice;
     }
 
     
@@ -255,6 +303,39 @@ abstract public class AbstractAsyncMethodTransformer {
         
     }
     
+    protected Set<AbstractInsnNode> findLoopBackEdges() {
+        if (preemptionTimeSlice <= 0) {
+            return Collections.emptySet();
+        }
+        Set<AbstractInsnNode> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<LabelNode> visitedLabels = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (AbstractInsnNode insn = originalAsyncMethod.instructions.getFirst(); null != insn; insn = insn.getNext()) {
+            if (insn instanceof LabelNode) {
+                visitedLabels.add((LabelNode)insn);
+            } else if (insn instanceof JumpInsnNode && insn.getOpcode() != JSR) {
+                // Jump to the label that precedes instruction -- loop
+                if (visitedLabels.contains(((JumpInsnNode)insn).label)) {
+                    result.add(insn);
+                }
+            }
+        }
+        return result;
+    }
+    
+    protected void addPreemptionCheck(InsnList newInstructions) {
+        // Stack-neutral, so may be placed before conditional jumps as well
+        newInstructions.add(new VarInsnNode(ALOAD, 0));
+        newInstructions.add(new LdcInsnNode(Long.valueOf(TimeUnit.MICROSECONDS.toNanos(preemptionTimeSlice))));
+        newInstructions.add(
+            new MethodInsnNode(INVOKEVIRTUAL, 
+                               ABSTRACT_ASYNC_METHOD_TYPE.getInternalName(), 
+                               "preemptionPoint", 
+                               Type.getMethodDescriptor(Type.VOID_TYPE, Type.LONG_TYPE), 
+                               false
+            )
+        );
+    }
+    
     protected Object[] findOwnerInvokeDynamic(AbstractInsnNode instruction, List<MethodNode> ownerMethods) {
         if (instruction instanceof InvokeDynamicInsnNode) {
             InvokeDynamicInsnNode n = (InvokeDynamicInsnNode) instruction;
@@ -325,21 +406,58 @@ abstract public class AbstractAsyncMethodTransformer {
         } else {
             result.visitInsn(ACONST_NULL);
         }
-        // Resolve by owner if non-static
-        if (isStatic) {
-            result.visitInsn(ACONST_NULL);
+        String schedulerName = schedulerNameOf(classNode, originalAsyncMethod);
+        if ((classNode.version & 0xFFFF) >= V1_7) {
+            // Resolution strategy is linked once per call site
+            Handle bootstrap;
+            Object[] bootstrapArgs;
+            if (null == schedulerName) {
+                bootstrap = CURRENT_SCHEDULER_BOOTSTRAP;
+                bootstrapArgs = declaredSchedulerProviders();
+            } else {
+                Object[] providers = declaredSchedulerProviders();
+                bootstrap = NAMED_SCHEDULER_BOOTSTRAP;
+                bootstrapArgs = new Object[providers.length + 1];
+                bootstrapArgs[0] = schedulerName;
+                System.arraycopy(providers, 0, bootstrapArgs, 1, providers.length);
+            }
+            if (isStatic) {
+                result.visitInvokeDynamicInsn(
+                    "currentScheduler", Type.getMethodDescriptor(SCHEDULER_TYPE, SCHEDULER_TYPE), 
+                    bootstrap, bootstrapArgs
+                );
+            } else {
+                result.visitVarInsn(ALOAD, 0);
+                result.visitInvokeDynamicInsn(
+                    "currentScheduler", Type.getMethodDescriptor(SCHEDULER_TYPE, SCHEDULER_TYPE, OBJECT_TYPE), 
+                    bootstrap, bootstrapArgs
+                );
+            }
         } else {
-            result.visitVarInsn(ALOAD, 0);
+            // Resolve by owner if non-static
+            if (isStatic) {
+                result.visitInsn(ACONST_NULL);
+            } else {
+                result.visitVarInsn(ALOAD, 0);
+            }
+            // result.visitLdcInsn(Type.getObjectType(classNode.name));
+            result.visitMethodInsn(
+                INVOKESTATIC, METHOD_HANDLES_TYPE.getInternalName(), "lookup", 
+                Type.getMethodDescriptor(METHOD_HANDLES_LOOKUP_TYPE), false
+            );
+            if (null == schedulerName) {
+                result.visitMethodInsn(
+                    INVOKESTATIC, ASYNC_METHOD_EXECUTOR_TYPE.getInternalName(), "currentScheduler", 
+                    Type.getMethodDescriptor(SCHEDULER_TYPE, SCHEDULER_TYPE, OBJECT_TYPE, METHOD_HANDLES_LOOKUP_TYPE), false
+                );
+            } else {
+                result.visitLdcInsn(schedulerName);
+                result.visitMethodInsn(
+                    INVOKESTATIC, ASYNC_METHOD_EXECUTOR_TYPE.getInternalName(), "currentScheduler", 
+                    Type.getMethodDescriptor(SCHEDULER_TYPE, SCHEDULER_TYPE, OBJECT_TYPE, METHOD_HANDLES_LOOKUP_TYPE, STRING_TYPE), false
+                );
+            }
         }
-        // result.visitLdcInsn(Type.getObjectType(classNode.name));
-        result.visitMethodInsn(
-            INVOKESTATIC, METHOD_HANDLES_TYPE.getInternalName(), "lookup", 
-            Type.getMethodDescriptor(METHOD_HANDLES_LOOKUP_TYPE), false
-        );
-        result.visitMethodInsn(
-            INVOKESTATIC, ASYNC_METHOD_EXECUTOR_TYPE.getInternalName(), "currentScheduler", 
-            Type.getMethodDescriptor(SCHEDULER_TYPE, SCHEDULER_TYPE, OBJECT_TYPE, METHOD_HANDLES_LOOKUP_TYPE), false
-        );
         
         String constructorDesc = Type.getMethodDescriptor(
             Type.VOID_TYPE, 
@@ -419,6 +537,48 @@ abstract public class AbstractAsyncMethodTransformer {
         }
     }
     
+    /**
+     * Direct handles to all fields / getters annotated with @SchedulerProvider 
+     * that are declared in the class, so the runtime doesn't need reflection 
+     * to find them.
+     */
+    protected Object[] declaredSchedulerProviders() {
+        boolean isInterface = (classNode.access & ACC_INTERFACE) != 0;
+        List<Handle> result = new ArrayList<>();
+        for (FieldNode field : fieldsOf(classNode)) {
+            if (isSchedulerProvider(visibleAnnotationsOf(field)) && 
+                field.desc.startsWith("L")) {
+                
+                boolean isStatic = (field.access & ACC_STATIC) != 0;
+                result.add(new Handle(
+                    isStatic ? H_GETSTATIC : H_GETFIELD, classNode.name, field.name, field.desc, false
+                ));
+            }
+        }
+        for (MethodNode method : methodsOf(classNode)) {
+            if (isSchedulerProvider(visibleAnnotationsOf(method)) &&
+                (method.access & (ACC_SYNTHETIC | ACC_BRIDGE)) == 0 &&
+                Type.getArgumentTypes(method.desc).length == 0 && 
+                Type.getReturnType(method.desc).getSort() == Type.OBJECT) {
+                
+                int tag;
+                if ((method.access & ACC_STATIC) != 0) {
+                    tag = H_INVOKESTATIC;
+                } else if ((method.access & ACC_PRIVATE) != 0) {
+                    tag = H_INVOKESPECIAL;
+                } else {
+                    tag = isInterface ? H_INVOKEINTERFACE : H_INVOKEVIRTUAL;
+                }
+                result.add(new Handle(tag, classNode.name, method.name, method.desc, isInterface));
+            }
+        }
+        return result.toArray();
+    }
+    
+    private static boolean isSchedulerProvider(List<AnnotationNode> annotations) {
+        return annotations.stream().anyMatch(a -> SCHEDULER_PROVIDER_TYPE.getDescriptor().equals(a.desc));
+    }
+    
     protected int schedulerProviderParamIdx(MethodNode methodNode) {
         int result = -1;
         List<AnnotationNode>[] annotationBatches = visibleParameterAnnotationsOf(methodNode); 
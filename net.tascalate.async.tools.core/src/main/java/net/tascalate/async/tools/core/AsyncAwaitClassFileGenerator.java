@@ -54,7 +54,6 @@ public class AsyncAwaitClassFileGenerator {
     private final static Type COMPLETABLE_FUTURE_TYPE = Type.getObjectType("java/util/concurrent/CompletableFuture");
     private final static Type ASYNC_VALUE_TYPE        = Type.getObjectType("net/tascalate/async/AsyncValue");
     private final static Type TASCALATE_PROMISE_TYPE  = Type.getObjectType("net/tascalate/concurrent/Promise");
-    private final static Type ASYNC_GENERATOR_TYPE    = Type.getObjectType("net/tascalate/async/AsyncGenerator");
     
     private static final Set<Type> ASYNC_TASK_RETURN_TYPES = 
         Stream.of(COMPLETION_STAGE_TYPE, 
@@ -71,9 +70,20 @@ public class AsyncAwaitClassFileGenerator {
     // MethodNode
     private final Map<String, MethodNode> accessMethods = new HashMap<String, MethodNode>();
     private final ResourceLoader resourceLoader;
+    private final long preemptionTimeSlice;
     
     public AsyncAwaitClassFileGenerator(ResourceLoader resourceLoader) {
+        this(resourceLoader, 0);
+    }
+    
+    /**
+     * @param resourceLoader loader to resolve class hierarchy
+     * @param preemptionTimeSlice time slice in microseconds; when positive then
+     *        preemption checks are inserted at loop back-edges of async methods 
+     */
+    public AsyncAwaitClassFileGenerator(ResourceLoader resourceLoader, long preemptionTimeSlice) {
         this.resourceLoader = resourceLoader;
+        this.preemptionTimeSlice = preemptionTimeSlice;
     }
     
     public byte[] transform(byte[] classfileBuffer) {
@@ -129,9 +139,9 @@ public class AsyncAwaitClassFileGenerator {
                 Type returnType = Type.getReturnType(methodNode.desc);
                 AbstractAsyncMethodTransformer transformer = null;
                 if (ASYNC_TASK_RETURN_TYPES.contains(returnType)) {
-                    transformer = new AsyncTaskMethodTransformer(classNode, methodNode, accessMethods);
-                } else if (ASYNC_GENERATOR_TYPE.equals(returnType)) {
-                    transformer = new AsyncGeneratorMethodTransformer(classNode, methodNode, accessMethods);
+                    transformer = new AsyncTaskMethodTransformer(classNode, methodNode, accessMethods, preemptionTimeSlice);
+                } else if (AsyncGeneratorMethodTransformer.isGeneratorType(returnType)) {
+                    transformer = new AsyncGeneratorMethodTransformer(classNode, methodNode, accessMethods, preemptionTimeSlice);
                 } else {
                     // throw ex?
                 }
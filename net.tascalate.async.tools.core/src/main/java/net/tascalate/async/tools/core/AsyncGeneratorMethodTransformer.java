@@ -33,10 +33,12 @@ import static net.tascalate.asmx.Opcodes.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.tascalate.asmx.Handle;
 import net.tascalate.asmx.MethodVisitor;
@@ -59,23 +61,56 @@ import net.tascalate.asmx.tree.TryCatchBlockNode;
 import net.tascalate.asmx.tree.VarInsnNode;
 
 public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransformer {
-    private final static Type ASYNC_GENERATOR_METHOD_TYPE = Type.getObjectType("net/tascalate/async/core/AsyncGeneratorMethod");
-    private final static Type LAZY_GENERATOR_TYPE         = Type.getObjectType("net/tascalate/async/core/LazyGenerator");
+    // Generator return type -> { generator method base class, lazy generator class, yield method name }
+    private final static Map<Type, GeneratorKind> GENERATOR_KINDS = new HashMap<>();
+    static {
+        GENERATOR_KINDS.put(
+            Type.getObjectType("net/tascalate/async/AsyncGenerator"),
+            new GeneratorKind("AsyncGeneratorMethod", "LazyGenerator", "yield")
+        );
+        GENERATOR_KINDS.put(
+            Type.getObjectType("net/tascalate/async/IntAsyncGenerator"),
+            new GeneratorKind("IntAsyncGeneratorMethod", "LazyIntGenerator", "yieldInt")
+        );
+        GENERATOR_KINDS.put(
+            Type.getObjectType("net/tascalate/async/LongAsyncGenerator"),
+            new GeneratorKind("LongAsyncGeneratorMethod", "LazyLongGenerator", "yieldLong")
+        );
+        GENERATOR_KINDS.put(
+            Type.getObjectType("net/tascalate/async/DoubleAsyncGenerator"),
+            new GeneratorKind("DoubleAsyncGeneratorMethod", "LazyDoubleGenerator", "yieldDouble")
+        );
+    }
+    
+    private final GeneratorKind generatorKind;
     
     public AsyncGeneratorMethodTransformer(ClassNode               classNode,
                                            MethodNode              originalAsyncMethodNode,
                                            Map<String, MethodNode> accessMethods) {
         super(classNode, originalAsyncMethodNode, accessMethods);
+        this.generatorKind = generatorKindOf(originalAsyncMethodNode);
+    }
+    
+    public AsyncGeneratorMethodTransformer(ClassNode               classNode,
+                                           MethodNode              originalAsyncMethodNode,
+                                           Map<String, MethodNode> accessMethods,
+                                           long                    preemptionTimeSlice) {
+        super(classNode, originalAsyncMethodNode, accessMethods, preemptionTimeSlice);
+        this.generatorKind = generatorKindOf(originalAsyncMethodNode);
+    }
+    
+    public static boolean isGeneratorType(Type returnType) {
+        return GENERATOR_KINDS.containsKey(returnType);
     }
 
     @Override
     public ClassNode transform() {
-        return transform(ASYNC_GENERATOR_METHOD_TYPE);
+        return transform(generatorKind.methodType);
     }
     
     @Override
     protected MethodVisitor createReplacementAsyncMethod(String asyncTaskClassName) {
-        return createReplacementAsyncMethod(asyncTaskClassName, ASYNC_GENERATOR_METHOD_TYPE, "generator", LAZY_GENERATOR_TYPE);
+        return createReplacementAsyncMethod(asyncTaskClassName, generatorKind.methodType, "generator", generatorKind.lazyGeneratorType);
     }
    
     @Override
@@ -97,6 +132,7 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
         LabelNode methodStart = new LabelNode();
         LabelNode methodEnd = new LabelNode();
 
+        Set<AbstractInsnNode> loopBackEdges = findLoopBackEdges();
         Map<LabelNode, LabelNode> labelsMap = new IdentityHashMap<>();
         for (AbstractInsnNode l = originalAsyncMethod.instructions.getFirst(); l != null; l = l.getNext()) {
             if (!(l instanceof LabelNode))
@@ -229,6 +265,16 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
                 } else if (min.getOpcode() == INVOKESTATIC && CALL_CONTXT_NAME.equals(min.owner)) {
                     switch (min.name) {
                         case "yield":
+                        case "yieldInt":
+                        case "yieldLong":
+                        case "yieldDouble":
+                            if (!generatorKind.yieldMethodName.equals(min.name)) {
+                                throw new IllegalStateException(
+                                    "Method " + min.name + " can't be used inside generator method that returns " + 
+                                    Type.getReturnType(originalAsyncMethod.desc).getClassName() + 
+                                    ", use " + generatorKind.yieldMethodName + " instead"
+                                );
+                            }
                             Type[] args = Type.getArgumentTypes(min.desc);
                             newInstructions.add(new VarInsnNode(ALOAD, 0));
                             if (null != args) {
@@ -236,7 +282,13 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
                                     case 0: 
                                         break;
                                     case 1: 
-                                        newInstructions.add(new InsnNode(SWAP));
+                                        if (args[0].getSize() == 2) {
+                                            // long / double value: move "this" below
+                                            newInstructions.add(new InsnNode(DUP_X2));
+                                            newInstructions.add(new InsnNode(POP));
+                                        } else {
+                                            newInstructions.add(new InsnNode(SWAP));
+                                        }
                                         break;
                                     default:
                                         throw new IllegalStateException("Can't support YIELD method with more than one argument");
@@ -244,8 +296,8 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
                             }
                             newInstructions.add(
                                 new MethodInsnNode(INVOKEVIRTUAL, 
-                                                   ASYNC_GENERATOR_METHOD_TYPE.getInternalName(), 
-                                                   "yield", 
+                                                   generatorKind.methodType.getInternalName(), 
+                                                   min.name, 
                                                    Type.getMethodDescriptor(Type.getReturnType(min.desc), args), 
                                                    false
                                 )
@@ -255,7 +307,7 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
                             newInstructions.add(new VarInsnNode(ALOAD, 0));
                             newInstructions.add(
                                     new MethodInsnNode(INVOKEVIRTUAL, 
-                                                       ASYNC_GENERATOR_METHOD_TYPE.getInternalName(), 
+                                                       generatorKind.methodType.getInternalName(), 
                                                        "interrupted", 
                                                        Type.getMethodDescriptor(Type.BOOLEAN_TYPE), 
                                                        false
@@ -267,7 +319,8 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
                                 new MethodInsnNode(INVOKESTATIC, 
                                                    ASYNC_METHOD_EXECUTOR_TYPE.getInternalName(), 
                                                    "await", 
-                                                   Type.getMethodDescriptor(OBJECT_TYPE, COMPLETION_STAGE_TYPE), 
+                                                   // Either (CompletionStage) or (CompletionStage, ResumePolicy)
+                                                   Type.getMethodDescriptor(OBJECT_TYPE, Type.getArgumentTypes(min.desc)),
                                                    false
                                 )
                             );
@@ -302,6 +355,9 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
                 continue;
             }
 
+            if (loopBackEdges.contains(insn)) {
+                addPreemptionCheck(newInstructions);
+            }
             // do not make changes
             newInstructions.add(insn.clone(labelsMap));
         }
@@ -319,4 +375,25 @@ public class AsyncGeneratorMethodTransformer extends AbstractAsyncMethodTransfor
 
         return result;        
     }
+    
+    private static GeneratorKind generatorKindOf(MethodNode asyncMethodNode) {
+        Type returnType = Type.getReturnType(asyncMethodNode.desc);
+        GeneratorKind result = GENERATOR_KINDS.get(returnType);
+        if (null == result) {
+            throw new IllegalArgumentException("Unsupported generator type: " + returnType.getClassName());
+        }
+        return result;
+    }
+    
+    static final class GeneratorKind {
+        final Type methodType;
+        final Type lazyGeneratorType;
+        final String yieldMethodName;
+        
+        GeneratorKind(String methodClassName, String lazyGeneratorClassName, String yieldMethodName) {
+            this.methodType        = Type.getObjectType("net/tascalate/async/core/" + methodClassName);
+            this.lazyGeneratorType = Type.getObjectType("net/tascalate/async/core/" + lazyGeneratorClassName);
+            this.yieldMethodName   = yieldMethodName;
+        }
+    }
 }
@@ -37,6 +37,7 @@ import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.tascalate.asmx.Handle;
 import net.tascalate.asmx.MethodVisitor;
@@ -68,6 +69,13 @@ public class AsyncTaskMethodTransformer extends AbstractAsyncMethodTransformer {
         super(classNode, originalAsyncMethodNode, accessMethods);
     }
     
+    public AsyncTaskMethodTransformer(ClassNode               classNode,
+                                      MethodNode              originalAsyncMethodNode,
+                                      Map<String, MethodNode> accessMethods,
+                                      long                    preemptionTimeSlice) {
+        super(classNode, originalAsyncMethodNode, accessMethods, preemptionTimeSlice);
+    }
+    
     @Override
     public ClassNode transform() {
         return transform(ASYNC_TASK_METHOD_TYPE);
@@ -103,6 +111,7 @@ public class AsyncTaskMethodTransformer extends AbstractAsyncMethodTransformer {
         
         result.visitCode();
 
+        Set<AbstractInsnNode> loopBackEdges = findLoopBackEdges();
         Map<LabelNode, LabelNode> labelsMap = new IdentityHashMap<>();
         for (AbstractInsnNode l = originalAsyncMethod.instructions.getFirst(); l != null; l = l.getNext()) {
             if (!(l instanceof LabelNode))
@@ -276,7 +285,8 @@ public class AsyncTaskMethodTransformer extends AbstractAsyncMethodTransformer {
                                 new MethodInsnNode(INVOKESTATIC, 
                                                    ASYNC_METHOD_EXECUTOR_TYPE.getInternalName(), 
                                                    "await", 
-                                                   Type.getMethodDescriptor(OBJECT_TYPE, COMPLETION_STAGE_TYPE),
+                                                   // Either (CompletionStage) or (CompletionStage, ResumePolicy)
+                                                   Type.getMethodDescriptor(OBJECT_TYPE, Type.getArgumentTypes(min.desc)),
                                                    false
                                 )
                             );
@@ -311,6 +321,9 @@ public class AsyncTaskMethodTransformer extends AbstractAsyncMethodTransformer {
                 continue;
             }
 
+            if (loopBackEdges.contains(insn)) {
+                addPreemptionCheck(newInstructions);
+            }
             // do not make changes
             newInstructions.add(insn.clone(labelsMap));
         }
@@ -56,6 +56,7 @@ class BytecodeIntrospection {
     private static final Logger log = LoggerFactory.getLogger(BytecodeIntrospection.class);
     
     static final String ASYNC_ANNOTATION_DESCRIPTOR = "Lnet/tascalate/async/async;";
+    static final String NAMED_SCHEDULER_ANNOTATION_DESCRIPTOR = "Lnet/tascalate/async/NamedScheduler;";
 
     private BytecodeIntrospection() {
     }
@@ -214,6 +215,32 @@ class BytecodeIntrospection {
         return found;
     }
 
+    /**
+     * Name of the scheduler either from the @async annotation of the method 
+     * or from the @NamedScheduler annotation of the class; null if none specified
+     */
+    static String schedulerNameOf(ClassNode classNode, MethodNode methodNode) {
+        String result = annotationValue(invisibleAnnotationsOf(methodNode), ASYNC_ANNOTATION_DESCRIPTOR, "scheduler");
+        if (null == result || result.isEmpty()) {
+            result = annotationValue(invisibleAnnotationsOf(classNode), NAMED_SCHEDULER_ANNOTATION_DESCRIPTOR, "value");
+        }
+        return null == result || result.isEmpty() ? null : result;
+    }
+    
+    private static String annotationValue(List<AnnotationNode> annotations, String targetAnnotationTypeDescriptor, String name) {
+        for (AnnotationNode annotation : annotations) {
+            if (targetAnnotationTypeDescriptor.equals(annotation.desc) && null != annotation.values) {
+                // Values are stored as name, value, name, value...
+                for (int i = 0; i < annotation.values.size(); i += 2) {
+                    if (name.equals(annotation.values.get(i))) {
+                        return (String)annotation.values.get(i + 1);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
     private static boolean annotationPresent(List<AnnotationNode> annotations, String targetAnnotationTypeDescriptor) {
         
         for (AnnotationNode annotation : annotations) {
@@ -228,7 +255,7 @@ class BytecodeIntrospection {
         return getMethod(methodName, null, methods) != null;
     }
 
-    private static List<FieldNode> fieldsOf(ClassNode classNode) {
+    static List<FieldNode> fieldsOf(ClassNode classNode) {
         return null == classNode.fields ? Collections.<FieldNode> emptyList() : (List<FieldNode>) classNode.fields;
     }
 
@@ -236,6 +263,10 @@ class BytecodeIntrospection {
         return safeAnnotationsList(methodNode.visibleAnnotations);
     }
     
+    static List<AnnotationNode> visibleAnnotationsOf(FieldNode fieldNode) {
+        return safeAnnotationsList(fieldNode.visibleAnnotations);
+    }
+    
     static List<AnnotationNode>[] visibleParameterAnnotationsOf(MethodNode methodNode) {
         return methodNode.visibleParameterAnnotations;
     }
@@ -252,6 +283,10 @@ class BytecodeIntrospection {
         return safeAnnotationsList(methodNode.invisibleAnnotations);
     }
     
+    static List<AnnotationNode> invisibleAnnotationsOf(ClassNode classNode) {
+        return safeAnnotationsList(classNode.invisibleAnnotations);
+    }
+    
     static List<AnnotationNode>[] invisibleParameterAnnotationsOf(MethodNode methodNode) {
         return methodNode.invisibleParameterAnnotations;
     }
@@ -46,9 +46,11 @@ class AsyncAwaitClassFileTransformer extends PortableClassFileTransformer {
     private static final Logger log = LoggerFactory.getLogger(AsyncAwaitClassFileTransformer.class);
 
     private final ClassFileTransformer postProcessor;
+    private final long preemptionTimeSlice;
 
-    AsyncAwaitClassFileTransformer(ClassFileTransformer postProcessor) {
+    AsyncAwaitClassFileTransformer(ClassFileTransformer postProcessor, long preemptionTimeSlice) {
         this.postProcessor = postProcessor;
+        this.preemptionTimeSlice = preemptionTimeSlice;
     }
 
     @Override
@@ -68,7 +70,7 @@ class AsyncAwaitClassFileTransformer extends PortableClassFileTransformer {
             ClassLoader classLoader = getSafeClassLoader(originalClassLoader);
 
             AsyncAwaitClassFileGenerator generator = new AsyncAwaitClassFileGenerator(
-                new ClasspathResourceLoader(classLoader)
+                new ClasspathResourceLoader(classLoader), preemptionTimeSlice
             );
             
             byte[] transformed = generator.transform(classfileBuffer);
@@ -25,22 +25,36 @@
 package net.tascalate.async.tools.instrumentation;
 
 import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.javaflow.instrumentation.JavaFlowClassTransformer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class AsyncAwaitInstrumentationAgent {
+    private static final Logger log = LoggerFactory.getLogger(AsyncAwaitInstrumentationAgent.class);
+    
+    private static final String WARM_UP_CLASS = "net.tascalate.async.spi.SchedulerProviderWarmUp";
+    
     /**
      * JVM hook to statically load the javaagent at startup.
      * 
      * After the Java Virtual Machine (JVM) has initialized, the premain method
      * will be called. Then the real application main method will be called.
      * 
-     * @param args arguments supplied to the agent
+     * @param args arguments supplied to the agent, comma-separated list of 
+     *        name=value options, for ex. "preemptionTimeSlice=10000" or
+     *        "warmupPackages=com.acme.app;com.acme.lib"
      * @param instrumentation {@link Instrumentation} object passed by JVM
      * @throws Exception thrown when agent is unable to start
      */
     public static void premain(String args, Instrumentation instrumentation) throws Exception {
-        setupInstrumentation(instrumentation);
+        setupInstrumentation(instrumentation, parseArgs(args));
         System.setProperty(AsyncAwaitInstrumentationAgent.class.getName(), "true");
         System.setProperty("org.apache.commons.javaflow.instrumentation.JavaFlowInstrumentationAgent", "true");
     }
@@ -51,12 +65,14 @@ public class AsyncAwaitInstrumentationAgent {
      * The agent class may have an agentmain method for use when the agent is
      * started after VM startup.
      * 
-     * @param args arguments supplied to the agent
+     * @param args arguments supplied to the agent, comma-separated list of 
+     *        name=value options, for ex. "preemptionTimeSlice=10000" or
+     *        "warmupPackages=com.acme.app;com.acme.lib"
      * @param instrumentation {@link Instrumentation} object passed by JVM
      * @throws Exception thrown when agent is unable to start
      */
     public static void agentmain(String args, Instrumentation instrumentation) throws Exception {
-        setupInstrumentation(instrumentation);
+        setupInstrumentation(instrumentation, parseArgs(args));
         for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
             if (instrumentation.isModifiableClass(clazz) && 
                 !AsyncAwaitClassFileTransformer.skipClassByName(clazz.getName())) {
@@ -71,7 +87,73 @@ public class AsyncAwaitInstrumentationAgent {
         System.setProperty("org.apache.commons.javaflow.instrumentation.JavaFlowInstrumentationAgent", "true");
     }
 
-    private static void setupInstrumentation(final Instrumentation instrumentation) {
-        instrumentation.addTransformer(new AsyncAwaitClassFileTransformer(new JavaFlowClassTransformer()), true);
+    private static void setupInstrumentation(final Instrumentation instrumentation, Map<String, String> options) {
+        long preemptionTimeSlice = parsePreemptionTimeSlice(options.get("preemptionTimeSlice"));
+        instrumentation.addTransformer(
+            new AsyncAwaitClassFileTransformer(new JavaFlowClassTransformer(), preemptionTimeSlice), true
+        );
+        String warmupPackages = options.get("warmupPackages");
+        if (null != warmupPackages && !warmupPackages.trim().isEmpty()) {
+            startWarmUp(Arrays.asList(warmupPackages.split(";")));
+        }
+    }
+    
+    private static void startWarmUp(List<String> packageNames) {
+        // Runtime library may be absent on the agent classpath, so it's resolved reflectively
+        // via application class loader; the daemon thread starts right away and runs 
+        // concurrently with the application startup
+        Thread thread = new Thread(() -> {
+            ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+            try {
+                Class<?> warmUpClass = Class.forName(WARM_UP_CLASS, true, classLoader);
+                Method run = warmUpClass.getMethod("run", ClassLoader.class, Collection.class);
+                Object result = run.invoke(null, classLoader, packageNames);
+                log.info("Scheduler providers warm-up of " + packageNames + " completed: " + result);
+            } catch (ClassNotFoundException ex) {
+                log.warn("Scheduler providers warm-up skipped, runtime library is not available: " + WARM_UP_CLASS);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+                // LinkageError when the runtime library is only partially available
+                log.warn("Scheduler providers warm-up of " + packageNames + " failed", ex);
+            }
+        }, "tascalate-async-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private static long parsePreemptionTimeSlice(String value) {
+        if (null == value) {
+            return 0;
+        }
+        try {
+            long result = Long.parseLong(value);
+            if (result < 0) {
+                log.warn("Negative preemptionTimeSlice agent option is ignored, preemption checks are disabled: " + value);
+                return 0;
+            }
+            return result;
+        } catch (NumberFormatException ex) {
+            log.warn("Invalid preemptionTimeSlice agent option is ignored, preemption checks are disabled: " + value);
+            return 0;
+        }
+    }
+    
+    private static Map<String, String> parseArgs(String args) {
+        Map<String, String> result = new HashMap<>();
+        if (null == args) {
+            return result;
+        }
+        for (String option : args.split(",")) {
+            option = option.trim();
+            if (option.isEmpty()) {
+                continue;
+            }
+            int idx = option.indexOf('=');
+            if (idx < 0) {
+                result.put(option, "true");
+            } else {
+                result.put(option.substring(0, idx).trim(), option.substring(idx + 1).trim());
+            }
+        }
+        return result;
     }
 }
@@ -67,6 +67,7 @@ import net.tascalate.async.tools.core.AsyncAwaitClassFileGenerator;
  *       &lt;includeTestClasses&gt;false&lt;/includeTestClasses&gt;
  *       &lt;buildDir&gt;bin/classes&lt;/buildDir&gt;
  *       &lt;testBuildDir&gt;bin/test-classes&lt;/testBuildDir&gt;
+ *       &lt;preemptionTimeSlice&gt;10000&lt;/preemptionTimeSlice&gt;
  *   &lt;/configuration&gt;
  * </pre>
  * 
@@ -103,6 +104,14 @@ public class AsyncAwaitEnhancerMojo extends AbstractMojo {
     @Parameter(property = "tascalate-async.enhancer.testBuildDir", required = false)
     private String testBuildDir;
 
+    /**
+     * Time slice in microseconds for preemption checks that are inserted at
+     * loop back-edges of async methods; once the slice is exhausted the method
+     * yields and is re-scheduled. Zero (default) disables checks. 
+     */
+    @Parameter(defaultValue = "0", property = "tascalate-async.enhancer.preemptionTimeSlice", required = false)
+    private long preemptionTimeSlice;
+
     public void execute() throws MojoExecutionException {
         Log log = getLog();
         if (skip) {
@@ -125,7 +134,7 @@ public class AsyncAwaitEnhancerMojo extends AbstractMojo {
 
             ClassLoader effectiveClassLoader = loadAdditionalClassPath(classPath);
             AsyncAwaitClassFileGenerator generator = new AsyncAwaitClassFileGenerator(
-                new ClasspathResourceLoader(effectiveClassLoader)
+                new ClasspathResourceLoader(effectiveClassLoader), preemptionTimeSlice
             );
 
             // final ResourceTransformer dirTransformer =